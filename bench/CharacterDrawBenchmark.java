@@ -0,0 +1,68 @@
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Sorteo del personaje secreto ({@link AuxMethods#generateCharcter}). Se mide
+ * con uno y con varios hilos para ver que el mazo común no compite, y en un
+ * hilo virtual nuevo en cada sorteo, como las partidas del servidor, para ver
+ * que sortear no depende de estado por hilo ni del tamaño del catálogo
+ * ({@link #threadStart} da lo que cuesta solo el hilo).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CharacterDrawBenchmark {
+
+    @Param({"9", "1000", "100000", "1000000"})
+    public int roster;
+
+    private CharacterCatalog catalog;
+
+    @Setup
+    public void setUp() {
+        catalog = Rosters.catalog(roster);
+    }
+
+    @Benchmark
+    public int generateCharacter() {
+        return AuxMethods.generateCharcter(catalog);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int generateCharacterContended() {
+        return AuxMethods.generateCharcter(catalog);
+    }
+
+    @Benchmark
+    public int generateCharacterFreshThread() throws InterruptedException {
+        int[] secret = new int[1];
+        Thread.ofVirtual().start(() -> secret[0] = AuxMethods.generateCharcter(catalog)).join();
+        return secret[0];
+    }
+
+    @Benchmark
+    public int threadStart() throws InterruptedException {
+        int[] secret = new int[1];
+        Thread.ofVirtual().start(() -> secret[0] = roster).join();
+        return secret[0];
+    }
+}
@@ -0,0 +1,67 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Decodificar y escalar los retratos de {@code src/img}, por separado para
+ * ver cuánto pesa cada paso. El coste es por retrato y no depende del tamaño
+ * del catálogo, así que aquí se varía el retrato y el tamaño de la celda.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ImageBenchmark {
+
+    @Param({"/img/kratos.jpeg", "/img/bat.jpg", "/img/subzero.png"})
+    public String portrait;
+
+    @Param({"120", "240"})
+    public int cell;
+
+    private URL url;
+    private BufferedImage decoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        url = ImageBenchmark.class.getResource(portrait);
+        if (url == null) {
+            throw new IOException("Recurso no encontrado: " + portrait);
+        }
+        decoded = ImageIO.read(url);
+    }
+
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(url);
+    }
+
+    @Benchmark
+    public BufferedImage scale() {
+        return ImageCache.scale(decoded, cell, cell);
+    }
+
+    @Benchmark
+    public BufferedImage decodeAndScale() throws IOException {
+        return ImageCache.scale(ImageIO.read(url), cell, cell);
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Lo que hace el {@code listener} de la botonera de {@link GameScreen} al
+ * pulsar una pregunta: pasar del nombre del botón a la característica y
+ * comprobarla en el personaje secreto, y el paso del {@link QuestionSolver}
+ * que descarta candidatos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuestionLookupBenchmark {
+
+    @Param({"9", "1000", "100000", "1000000"})
+    public int roster;
+
+    private CharacterCatalog catalog;
+    private QuestionSolver solver;
+    private int secret;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        catalog = Rosters.catalog(roster);
+        solver = QuestionSolver.forGame(new GameEngine(catalog));
+        secret = catalog.size() / 2;
+    }
+
+    // Recorre las preguntas de la botonera en orden
+    private String nextButton() {
+        String button = GameEngine.QUESTIONS[next];
+        next = (next + 1) % GameEngine.QUESTIONS.length;
+        return button;
+    }
+
+    @Benchmark
+    public boolean attributeLookup() {
+        int attribute = catalog.attributeId(nextButton());
+        return catalog.hasAttribute(secret, attribute);
+    }
+
+    @Benchmark
+    public int solverAnswer() {
+        if (next == 0) {
+            solver.reset();
+        }
+        int attribute = catalog.attributeId(nextButton());
+        solver.answer(attribute, catalog.hasAttribute(secret, attribute));
+        return solver.candidateCount();
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Catálogos sintéticos para las pruebas de rendimiento. Con 9 personajes se
+ * usa el catálogo real del juego; para tamaños mayores se generan personajes
+ * con las mismas características de la botonera, siempre con la misma
+ * semilla para que las ejecuciones sean comparables.
+ */
+final class Rosters {
+
+    private Rosters() {
+    }
+
+    static CharacterCatalog catalog(int size) {
+        if (size == CharacterCatalog.getDefault().size()) {
+            return CharacterCatalog.getDefault();
+        }
+        SplittableRandom random = new SplittableRandom(size);
+        String[] attributes = GameEngine.QUESTIONS;
+        String[][] characters = new String[size][];
+        for (int i = 0; i < size; i++) {
+            // Entre 3 y 8 características distintas por personaje, como en el catálogo real
+            int count = 3 + random.nextInt(6);
+            characters[i] = new String[count + 1];
+            characters[i][0] = "personaje " + i;
+            int first = random.nextInt(attributes.length);
+            for (int j = 0; j < count; j++) {
+                characters[i][j + 1] = attributes[(first + j) % attributes.length];
+            }
+        }
+        return new CharacterCatalog(characters);
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Lo que hacía {@code generatScoreFile} con el fichero de texto (leer todas
+ * las puntuaciones y ordenarlas) y lo que hace ahora: añadir al
+ * {@link ScoreJournal} y leer el diario en la {@link Leaderboard}. El número
+ * de puntuaciones guardadas es el tamaño que se varía.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoreBenchmark {
+
+    @Param({"9", "1000", "100000", "1000000"})
+    public int roster;
+
+    private Path directory;
+    private ScoreJournal journal;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("score-bench");
+        SplittableRandom random = new SplittableRandom(roster);
+        List<ScoreJournal.Entry> entries = new ArrayList<>(roster);
+        for (int i = 0; i < roster; i++) {
+            entries.add(new ScoreJournal.Entry("jugador " + random.nextInt(Math.max(1, roster / 4)),
+                    random.nextInt(GameEngine.INITIAL_SCORE + 1), i));
+        }
+        journal = ScoreJournal.create(directory.resolve("scores.journal"), entries);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Leer y ordenar todo el diario para sacar el podio.
+     */
+    @Benchmark
+    public List<Leaderboard.Ranked> loadAndRank() throws IOException {
+        Leaderboard board = new Leaderboard(journal);
+        board.refresh();
+        return board.top(3);
+    }
+
+    /**
+     * Añadir una puntuación, forzada a disco como en {@code generatScoreFile}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 50)
+    public void append() throws IOException {
+        journal.append("jugador", GameEngine.INITIAL_SCORE);
+    }
+}
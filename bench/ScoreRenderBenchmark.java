@@ -0,0 +1,90 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * La pantalla de puntuaciones ({@link Score#showScore}): traer la página de
+ * la clasificación que se va a ver y pintar las filas visibles de la tabla
+ * en una imagen, sin ventana.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ScoreRenderBenchmark {
+
+    // Filas que caben en la pantalla de puntuaciones
+    private static final int VISIBLE_ROWS = 15;
+
+    @Param({"9", "1000", "100000", "1000000"})
+    public int roster;
+
+    private Leaderboard board;
+    private JTable table;
+    private BufferedImage canvas;
+    private Graphics2D graphics;
+    private int pages;
+    private int page;
+
+    @Setup
+    public void setUp() {
+        board = new Leaderboard(null);
+        SplittableRandom random = new SplittableRandom(roster);
+        for (int i = 0; i < roster; i++) {
+            board.add("jugador " + i, random.nextInt(GameEngine.INITIAL_SCORE + 1));
+        }
+        pages = (roster + ScoreTableModel.PAGE_SIZE - 1) / ScoreTableModel.PAGE_SIZE;
+
+        ScoreTableModel model = new ScoreTableModel();
+        model.show(board);
+        model.preload(0);
+        table = new JTable(model);
+        table.setRowHeight(32);
+        table.setSize(800, VISIBLE_ROWS * table.getRowHeight());
+        canvas = new BufferedImage(table.getWidth(), table.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = canvas.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Traer una página cualquiera de la clasificación, como al desplazarse.
+     */
+    @Benchmark
+    public Object fetchPage() {
+        page = (page + 1) % pages;
+        return ScoreTableModel.fetch(board, page);
+    }
+
+    /**
+     * Pintar las filas visibles de la primera página.
+     */
+    @Benchmark
+    public BufferedImage paintVisibleRows() {
+        table.paint(graphics);
+        return canvas;
+    }
+}
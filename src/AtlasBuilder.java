@@ -0,0 +1,80 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.imageio.ImageIO;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Herramienta de compilación que empaqueta los retratos de los personajes en
+ * un único atlas pre-escalado ({@code atlas.png}) y un índice de texto
+ * ({@code atlas.idx}) con una línea {@code recurso x y ancho alto} por
+ * retrato. Solo se empaquetan los retratos a los que apunta el catálogo de
+ * personajes en texto, cada uno una vez; el resto de imágenes se cargan
+ * sueltas. El atlas conserva la transparencia de los PNG. La invoca el target
+ * {@code -post-compile} de {@code build.xml}.
+ * <p>
+ * Uso: {@code java AtlasBuilder <dirSalida> <tamañoCelda> <catálogo.txt> <dirFuentes>},
+ * donde {@code dirFuentes} es la raíz de la que cuelgan los recursos
+ * ({@code /img/kratos.jpeg} es {@code dirFuentes/img/kratos.jpeg}).
+ */
+public final class AtlasBuilder {
+
+    private AtlasBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Uso: java AtlasBuilder <dirSalida> <tamañoCelda> <catálogo.txt> <dirFuentes>");
+            System.exit(1);
+        }
+        File outputDir = new File(args[0]);
+        int cell = Integer.parseInt(args[1]);
+        CharacterCatalog catalog = CatalogBuilder.read(Paths.get(args[2]));
+        File sourceRoot = new File(args[3]);
+        Set<String> portraits = new LinkedHashSet<>();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (catalog.portrait(i) != null) {
+                portraits.add(catalog.portrait(i));
+            }
+        }
+
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(portraits.size())));
+        int rows = Math.max(1, (portraits.size() + columns - 1) / columns);
+        BufferedImage sheet = new BufferedImage(columns * cell, rows * cell, BufferedImage.TYPE_INT_ARGB);
+
+        outputDir.mkdirs();
+        File index = new File(outputDir, "atlas.idx");
+        Graphics2D g = sheet.createGraphics();
+        int packed;
+        try (PrintWriter pw = new PrintWriter(index, StandardCharsets.UTF_8)) {
+            int slot = 0;
+            for (String portrait : portraits) {
+                File source = new File(sourceRoot, portrait.substring(1));
+                BufferedImage image = source.isFile() ? ImageIO.read(source) : null;
+                if (image == null) {
+                    System.err.println("Se omite (no existe o formato no soportado): " + source);
+                    continue;
+                }
+                int x = (slot % columns) * cell;
+                int y = (slot / columns) * cell;
+                g.drawImage(ImageCache.scale(image, cell, cell), x, y, null);
+                pw.println(portrait + " " + x + " " + y + " " + cell + " " + cell);
+                slot++;
+            }
+            packed = slot;
+        } finally {
+            g.dispose();
+        }
+        ImageIO.write(sheet, "png", new File(outputDir, "atlas.png"));
+        System.out.println(packed + " retratos empaquetados en " + new File(outputDir, "atlas.png"));
+    }
+}
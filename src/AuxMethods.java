@@ -1,28 +1,13 @@
 
 import java.awt.Component;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
 import javax.swing.JTextField;
-import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  *
@@ -34,260 +19,142 @@ import javax.swing.SwingUtilities;
 
 public class AuxMethods {
 
+    // Última música lanzada por esta instancia (para poder pararla)
+    private String musicPath;
+
     /**
-     * Genera aleatoriamente un personaje seleccionando uno de los subarreglos
-     * de una lista bidimensional.
+     * Genera aleatoriamente un personaje seleccionando uno de los personajes
+     * del catálogo. Se reparte de un mazo común barajado
+     * ({@link RandomService#draw}), así que dos partidas seguidas no repiten
+     * personaje.
      *
-     * @param charactersList Arreglo bidimensional que contiene diferentes
-     * listas de personajes. Cada subarreglo representa un personaje con sus
-     * atributos.
-     * @return Un arreglo unidimensional que representa un personaje
-     * seleccionado aleatoriamente.
+     * @param catalog Catálogo de personajes indexado por bits.
+     * @return El índice del personaje seleccionado aleatoriamente.
      */
-    private Clip clip;
-
-    public static String[] generateCharcter(String[][] charactersList) {
-        // Crear una instancia de Random para generar números aleatorios
-        Random random = new Random();
-
-        // Seleccionar un índice aleatorio de la lista de personajes
-        int randomArray = random.nextInt(0, charactersList.length);
-
-        // Obtener la longitud del subarreglo seleccionado (no es estrictamente necesario aquí)
-        int arraysLength = charactersList[randomArray].length;
-
-        // Crear un nuevo arreglo para almacenar el personaje seleccionado (aunque se sobrescribe después)
-        String[] selectedCharacter = new String[arraysLength];
-
-        // Asignar directamente el subarreglo seleccionado al resultado
-        selectedCharacter = charactersList[randomArray];
-
-        return selectedCharacter;
+    public static int generateCharcter(CharacterCatalog catalog) {
+        return RandomService.getDefault().draw(catalog);
     }
 
+    // Tiempo que se ve la despedida antes de cerrar la aplicación
+    private static final int GOODBYE_MILLIS = 1200;
+
     /**
-     * Muestra un cuadro de diálogo al usuario para confirmar si desea iniciar
-     * una nueva partida. Si el usuario acepta, se cierra la ventana actual y se
-     * inicia una nueva instancia del juego. Si el usuario rechaza, se muestra
-     * un mensaje de despedida y se cierra la aplicación.
+     * Muestra en la ventana el resultado de la ronda con las opciones de
+     * jugar otra o salir, sin diálogos modales. Si el jugador elige otra, se
+     * empieza una ronda nueva en la misma ventana
+     * ({@link GameScreen#newRound()}). Si elige salir, se guarda la
+     * puntuación, se despide y se cierra la aplicación.
      *
-     * @param parent Componente padre del cuadro de diálogo, normalmente la
-     * ventana actual (por ejemplo, un JFrame).
-     * @param name Nombre del jugador o dato necesario para iniciar el nuevo
-     * juego.
+     * @param parent Ventana del juego.
+     * @param result Resultado de la ronda que se muestra al jugador.
+     * @param won Si el jugador ha acertado (decide el color del aviso).
      */
-    public static void newGameOption(Component parent, String name) {
-
-        // Muestra un cuadro de confirmación con las opciones "Sí" y "No"
-        int systemAnswer = JOptionPane.showConfirmDialog(
-                parent,
-                "¿Desea iniciar una nueva partida?",
-                "Continuar",
-                JOptionPane.YES_NO_OPTION,
-                JOptionPane.QUESTION_MESSAGE
-        );
-
-        // Si el usuario elige "Sí", se cierra la ventana actual y se inicia una nueva partida
-        if (systemAnswer == JOptionPane.YES_OPTION) {
-
-            // Cierra la ventana actual si es un JFrame
-            ((JFrame) parent).dispose();
-
-            // Lanza una nueva instancia del juego de forma segura en el hilo de eventos de Swing
-            SwingUtilities.invokeLater(() -> new GameScreen(name).setVisible(true));
-        } else {
-            // Si el usuario elige "No", muestra un mensaje de despedida y termina la aplicación
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "Gracias por utilizar mi juego",
-                    "Información",
-                    JOptionPane.INFORMATION_MESSAGE
-            );
-
-            int finalScore = ((GameScreen) parent).getScore();
-            System.out.println("score" + finalScore);
-//            showScore(finalScore, name);
-            try {
-                generatScoreFile(parent, finalScore, ((GameScreen) parent).getPlayerName());
-            } catch (IOException ex) {
-                System.getLogger(GameScreen.class.getName()).log(System.Logger.Level.ERROR, (String) null, ex);
-            }
-            System.exit(0);
-        }
+    public static void newGameOption(GameScreen parent, String result, boolean won) {
+        parent.promptPlayer(result + ". ¿Desea iniciar una nueva partida?",
+                won ? NotificationOverlay.Kind.SUCCESS : NotificationOverlay.Kind.ERROR,
+                new NotificationOverlay.Action("Nueva partida", parent::newRound),
+                new NotificationOverlay.Action("Salir", () -> {
+                    try {
+                        generatScoreFile(parent, parent.getScore(), parent.getPlayerName());
+                    } catch (IOException ex) {
+                        System.getLogger(GameScreen.class.getName()).log(System.Logger.Level.ERROR, (String) null, ex);
+                    }
+                    // La despedida se ve un momento y la aplicación se cierra sin esperar a ningún clic
+                    parent.notifyPlayer("Gracias por utilizar mi juego", NotificationOverlay.Kind.INFO);
+                    Timer exit = new Timer(GOODBYE_MILLIS, e -> System.exit(0));
+                    exit.setRepeats(false);
+                    exit.start();
+                }));
     }
 
     /**
-     * Maneja la lógica del botón de adivinanza del personaje. Comprueba si la
-     * entrada del usuario coincide con el personaje secreto y responde en
-     * consecuencia.
+     * Maneja la lógica del panel de adivinanza. Comprueba si la entrada del
+     * usuario coincide con el personaje secreto y responde con un aviso en la
+     * ventana. Un fallo normal solo se avisa; si el jugador ya había agotado
+     * las preguntas ({@link GameScreen.RoundState#MUST_GUESS}) el fallo
+     * termina la ronda.
      *
-     * @param parent Componente padre, normalmente la ventana principal del
-     * juego.
+     * @param parent Ventana principal del juego.
      * @param jTextField1 Campo de texto donde el usuario escribe su adivinanza.
-     * @param name Nombre del jugador (utilizado para reiniciar el juego si
-     * acierta).
+     * @param name Nombre del jugador.
      */
-    public static void guessButton(Component parent, JTextField jTextField1, String name) {
+    public static void guessButton(GameScreen parent, JTextField jTextField1, String name) {
         // Obtener el texto ingresado por el usuario
         String userCharacter = jTextField1.getText().trim();  // Se recomienda usar trim() para evitar espacios vacíos
+        long start = Metrics.start();
 
-        // Imprimir por consola para depuración
-        System.out.println("Adivina: " + userCharacter);
+        // Obtener la partida en curso y el nombre del personaje que debe adivinarse
+        GameSession session = parent.getSession();
+        String characterName = session.secretName();
 
-        // Obtener el personaje que debe adivinarse (índice 0 suele ser el nombre)
-        String[] characterArray = ((GameScreen) parent).getSelectedCharacter();
+        // Si la partida ya ha terminado no se admiten más intentos
+        if (session.isOver() || parent.roundState() == GameScreen.RoundState.OVER) {
+            jTextField1.setText("");
+            return;
+        }
 
         // Validar si el campo está vacío
         if (userCharacter.isEmpty()) {
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "Este campo no puede estar vacío.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE
-            );
+            parent.notifyPlayer("Este campo no puede estar vacío.", NotificationOverlay.Kind.ERROR);
         } // Verificar si la adivinanza es correcta (sin importar mayúsculas/minúsculas)
-        else if (userCharacter.equalsIgnoreCase(characterArray[0])) {
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "¡Eres una máquina! Sí, soy " + characterArray[0]
-            );
-
-            // Preguntar si desea iniciar una nueva partida
-            newGameOption(parent, name);
-
-            // Cerrar ventana actual (en caso no se haya cerrado en newGameOption)
-            if (parent instanceof JFrame jFrame) {
-                jFrame.dispose();
-            }
+        else if (guess(session, userCharacter, start)) {
+            parent.roundOver("¡Eres una máquina! Sí, soy " + characterName, true);
+        } // Si la adivinanza es incorrecta y ya no quedaban preguntas, se acabó
+        else if (session.isOver()) {
+            parent.roundOver("Game Over. Era " + characterName, false);
         } // Si la adivinanza es incorrecta
         else {
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "¡Que va! No soy " + userCharacter.toLowerCase() + ", piensa un poco más..."
-            );
+            parent.notifyPlayer("¡Que va! No soy " + userCharacter.toLowerCase() + ", piensa un poco más...",
+                    NotificationOverlay.Kind.ERROR);
         }
 
         // Limpiar el campo de texto para la siguiente adivinanza
         jTextField1.setText("");
     }
 
+    // Comprueba el intento y lo registra en las métricas (antes de mostrar ningún aviso)
+    private static boolean guess(GameSession session, String userCharacter, long start) {
+        boolean right = session.guess(userCharacter);
+        Metrics.guessed(right, start);
+        return right;
+    }
+
     /**
-     * Verifica si la adivinanza ingresada por el usuario es correcta. A
-     * diferencia de {@code guessButton}, este método parece usarse para
-     * intentos sin opción de repetir.
+     * Reproduce una pista de música en bucle a través del
+     * {@link MusicStreamer}. La pista se lee en streaming y, si ya sonaba
+     * otra, se hace un fundido cruzado entre ambas.
      *
-     * @param parent Componente padre (usualmente una ventana), usado para los
-     * cuadros de diálogo.
-     * @param jTextField1 Campo de texto donde el usuario introduce su
-     * adivinanza.
+     * @param musicPath Ruta del recurso de audio (por ejemplo
+     * "/audio/law.wav").
      */
-    public static void requiredGuess(Component parent, JTextField jTextField1) {
-        // Obtener y limpiar el texto ingresado por el usuario
-        String userCharacter = jTextField1.getText().trim();
-
-        // Imprimir la entrada del usuario (para depuración)
-        System.out.println("Adivina: " + userCharacter);
-
-        // Obtener el personaje correcto (índice 0 se asume como el nombre del personaje)
-        String[] characterArray = ((GameScreen) parent).getSelectedCharacter();
-
-        // Validar si el campo está vacío
-        if (userCharacter.isEmpty()) {
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "Este campo no puede estar vacío",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE
-            );
-        } // Si la adivinanza es correcta
-        else if (userCharacter.equalsIgnoreCase(characterArray[0])) {
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "¡Eres una máquina! Sí soy " + userCharacter.toLowerCase()
-            );
-        } // Si es incorrecta
-        else {
-            JOptionPane.showMessageDialog(
-                    parent,
-                    "Game Over. Wili go to Wisconsin."
-            );
-        }
-
-        // Limpiar el campo de texto
-        jTextField1.setText("");
-    }
-
-    public void playSound(String soundPath) {
-        try {
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(getClass().getResource(soundPath));
-            this.clip = AudioSystem.getClip(); // Usa this.clip
-            this.clip.open(audioIn);
-            this.clip.start(); //play loop
-        } catch (IOException | LineUnavailableException | UnsupportedAudioFileException e) {
-        }
+    public void playMusic(String musicPath) {
+        this.musicPath = musicPath;
+        MusicStreamer.getInstance().play(musicPath);
     }
 
     public void stopAudio() {
-        if (clip != null && clip.isRunning()) {
-            this.clip.stop();
-            this.clip.close();
+        if (musicPath != null) {
+            MusicStreamer.getInstance().stop(musicPath);
         }
     }
 
 
+/**
+ * Registra la puntuación final de una partida en el {@link ScoreJournal}. Es un
+ * añadido al final del diario: no se lee ni se reescribe el historial.
+ *
+ * @param parent Componente padre (no se usa, se mantiene por compatibilidad).
+ * @param score Puntuación final.
+ * @param playerName Nombre del jugador.
+ * @throws IOException Si no se puede escribir el diario.
+ */
 public static void generatScoreFile(Component parent, int score, String playerName) throws IOException {
-
-    String directoryPath = "Scores";
-    String fileName = "scores.txt";
-    Path scoreFilePath = Paths.get(directoryPath, fileName);
-
-    // Crear la carpeta si no existe
-    File directory = new File(directoryPath);
-    if (!directory.exists()) {
-        directory.mkdir();
-    }
-
-    // Lista para guardar pares (nombre, score)
-    List<String[]> scoreEntries = new ArrayList<>();
-
-    // Leer el archivo si ya existe
-    if (Files.exists(scoreFilePath)) {
-        List<String> lines = Files.readAllLines(scoreFilePath);
-        for (String line : lines) {
-            String[] parts = line.split("       ----------->", 2);
-            if (parts.length == 2) {
-                try {
-                    String name = parts[0].replaceAll("^\\d+\\.\\s*", ""); // Eliminar numeración previa
-                    int existingScore = Integer.parseInt(parts[1]);
-                    scoreEntries.add(new String[]{name, String.valueOf(existingScore)});
-                } catch (NumberFormatException ignored) {
-                }
-            }
-        }
-    }
-
     // Limpiar numeración si viene con el nombre del jugador
     playerName = playerName.replaceAll("^\\d+\\.\\s*", "");
 
-    // Agregar el nuevo score
-    scoreEntries.add(new String[]{playerName, String.valueOf(score)});
-
-    // Ordenar de mayor a menor por score
-    scoreEntries.sort((a, b) -> Integer.parseInt(b[1]) - Integer.parseInt(a[1]));
-
-    // Limitar a las 3 mejores puntuaciones
-    if (scoreEntries.size() > 3) {
-        scoreEntries = scoreEntries.subList(0, 3);
-    }
-
-    // Escribir nuevamente el archivo con las mejores puntuaciones
-    int i = 1;
-    try (PrintWriter pw = new PrintWriter(scoreFilePath.toFile())) {
-        for (String[] entry : scoreEntries) {
-            pw.println(i + ". " + entry[0] + "       ----------->" + entry[1]);
-            i++;
-        }
-    }
+    long start = Metrics.start();
+    ScoreJournal.getDefault().append(playerName, score);
+    Metrics.SCORE_WRITE.recordSince(start);
 }
 
 
@@ -0,0 +1,122 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Compila el catálogo de personajes en texto al fichero binario que abre
+ * {@link CharacterCatalog#open(Path)}. Cada línea del texto es
+ * {@code nombre | retrato | características}, con las características
+ * separadas por espacios; las líneas vacías y las que empiezan por {@code #}
+ * se ignoran y el retrato puede quedar vacío.
+ * <p>
+ * Uso: {@code java CatalogBuilder [fuente.txt] [salida]} (por defecto el
+ * catálogo incluido en el classpath y {@code Data/characters.catalog}).
+ */
+public final class CatalogBuilder {
+
+    private CatalogBuilder() {
+    }
+
+    /**
+     * Lee un catálogo en texto del classpath.
+     *
+     * @param resource Ruta del recurso (por ejemplo {@code /catalog/characters.txt}).
+     * @return El catálogo compilado en memoria.
+     * @throws IOException Si el recurso no existe o tiene errores.
+     */
+    public static CharacterCatalog readResource(String resource) throws IOException {
+        return read(resourceBytes(resource), resource);
+    }
+
+    /**
+     * @param resource Ruta del recurso.
+     * @return El contenido del recurso.
+     * @throws IOException Si el recurso no existe.
+     */
+    static byte[] resourceBytes(String resource) throws IOException {
+        try (InputStream in = CatalogBuilder.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Recurso no encontrado: " + resource);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Lee un catálogo en texto de disco.
+     *
+     * @param source Fichero de texto.
+     * @return El catálogo compilado en memoria.
+     * @throws IOException Si no se puede leer o tiene errores.
+     */
+    public static CharacterCatalog read(Path source) throws IOException {
+        return read(Files.readAllBytes(source), source.toString());
+    }
+
+    /**
+     * Huella del texto de un catálogo (FNV-1a de sus bytes). Se guarda en el
+     * compilado para saber de qué texto salió.
+     *
+     * @param text Contenido del catálogo en texto.
+     * @return La huella; nunca es 0, que marca un compilado sin texto.
+     */
+    static long sourceHash(byte[] text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : text) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    static CharacterCatalog read(byte[] text, String origin) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(new String(text, StandardCharsets.UTF_8)));
+        List<String[]> characters = new ArrayList<>();
+        List<String> portraits = new ArrayList<>();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\|", -1);
+            if (fields.length != 3 || fields[0].isBlank()) {
+                throw new IOException(origin + ":" + number + ": se esperaba 'nombre | retrato | características'");
+            }
+            String[] attributes = fields[2].strip().isEmpty() ? new String[0] : fields[2].strip().split("\\s+");
+            String[] character = new String[attributes.length + 1];
+            character[0] = fields[0].strip();
+            System.arraycopy(attributes, 0, character, 1, attributes.length);
+            characters.add(character);
+            portraits.add(fields[1].isBlank() ? null : fields[1].strip());
+        }
+        try {
+            return new CharacterCatalog(characters.toArray(new String[0][]), portraits.toArray(new String[0]),
+                    sourceHash(text));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(origin + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        CharacterCatalog catalog = args.length > 0 ? read(Paths.get(args[0]))
+                : readResource(CharacterCatalog.DEFAULT_SOURCE);
+        Path output = args.length > 1 ? Paths.get(args[1]) : CharacterCatalog.DEFAULT_PATH;
+        catalog.write(output);
+        System.out.printf("%d personajes y %d características escritos en %s (%.1f ms)%n",
+                catalog.size(), catalog.attributeCount(), output, (System.nanoTime() - start) / 1e6);
+    }
+}
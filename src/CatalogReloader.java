@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Recarga el catálogo de personajes sin reiniciar el juego ni el servidor.
+ * Un hilo en segundo plano vigila con un {@link WatchService} la carpeta del
+ * catálogo compilado ({@link CharacterCatalog#DEFAULT_PATH}) y la del
+ * catálogo en texto ({@link #DEFAULT_SOURCE}); cuando cambia alguno, compila
+ * o proyecta el nuevo en ese mismo hilo y lo publica de golpe con
+ * {@link CharacterCatalog#publish}.
+ * <p>
+ * Publicar es sustituir una referencia {@code volatile}: quien juega no se
+ * detiene ni toma ningún cerrojo. Las partidas en curso siguen con el motor
+ * (y por tanto el catálogo) con que empezaron y las siguientes que se creen
+ * con {@link GameEngine#getDefault()} ya sortean del nuevo.
+ */
+public final class CatalogReloader implements AutoCloseable {
+
+    /**
+     * Catálogo en texto que se puede editar con el juego abierto. Tiene el
+     * formato de {@link CatalogBuilder} y se compila a
+     * {@link CharacterCatalog#DEFAULT_PATH} al guardarlo.
+     */
+    public static final Path DEFAULT_SOURCE = Paths.get("Data", "characters.txt");
+
+    // Tiempo sin cambios antes de recargar: los editores guardan en varias escrituras
+    private static final long QUIET_MILLIS = 250;
+
+    private static final System.Logger LOGGER = System.getLogger(CatalogReloader.class.getName());
+
+    private final Path catalog;
+    private final Path source;
+    private final WatchService watcher;
+    private final Thread thread;
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Empieza a vigilar los ficheros. Se deja de vigilar con {@link #close()}.
+     *
+     * @param catalog Catálogo compilado.
+     * @param source Catálogo en texto.
+     * @throws IOException Si no se pueden vigilar las carpetas.
+     */
+    public CatalogReloader(Path catalog, Path source) throws IOException {
+        this.catalog = catalog.toAbsolutePath();
+        this.source = source.toAbsolutePath();
+        watcher = FileSystems.getDefault().newWatchService();
+        try {
+            register(this.catalog.getParent());
+            if (!this.source.getParent().equals(this.catalog.getParent())) {
+                register(this.source.getParent());
+            }
+        } catch (IOException ex) {
+            watcher.close();
+            throw ex;
+        }
+        thread = new Thread(this::watch, "catalog-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void register(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Vigila los ficheros por defecto. Si el catálogo en texto es más nuevo
+     * que el compilado (se editó con el juego cerrado) se recarga antes de
+     * empezar.
+     *
+     * @return El recargador, o {@code null} si no se puede vigilar la carpeta.
+     */
+    public static CatalogReloader start() {
+        try {
+            if (Files.exists(DEFAULT_SOURCE) && (!Files.exists(CharacterCatalog.DEFAULT_PATH)
+                    || Files.getLastModifiedTime(DEFAULT_SOURCE).compareTo(
+                            Files.getLastModifiedTime(CharacterCatalog.DEFAULT_PATH)) > 0)) {
+                reload(CharacterCatalog.DEFAULT_PATH, DEFAULT_SOURCE, true);
+            }
+            return new CatalogReloader(CharacterCatalog.DEFAULT_PATH, DEFAULT_SOURCE);
+        } catch (IOException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "No se recargará el catálogo: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Catálogos nuevos publicados.
+     */
+    public long reloads() {
+        return reloads.get();
+    }
+
+    /**
+     * @return Recargas descartadas por ficheros dañados o ilegibles.
+     */
+    public long failures() {
+        return failures.get();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean sourceChanged = false;
+                boolean catalogChanged = false;
+                // Se agrupan los avisos hasta que la carpeta lleva un rato sin cambios
+                while (key != null) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            sourceChanged = catalogChanged = true;
+                            continue;
+                        }
+                        Path changed = directory.resolve((Path) event.context());
+                        sourceChanged |= changed.equals(source);
+                        catalogChanged |= changed.equals(catalog);
+                    }
+                    key.reset();
+                    key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (sourceChanged || catalogChanged) {
+                    try {
+                        if (reload(catalog, source, sourceChanged)) {
+                            reloads.incrementAndGet();
+                        }
+                    } catch (IOException | RuntimeException ex) {
+                        // Un fichero a medio copiar o con errores no tumba el juego: se sigue con el anterior
+                        failures.incrementAndGet();
+                        LOGGER.log(System.Logger.Level.WARNING, "No se recargó el catálogo: " + ex.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // close()
+        }
+    }
+
+    /**
+     * Compila (si {@code fromSource}) o proyecta el catálogo y lo publica si
+     * es distinto del actual.
+     *
+     * @return {@code true} si se publicó un catálogo nuevo.
+     */
+    private static boolean reload(Path catalog, Path source, boolean fromSource) throws IOException {
+        CharacterCatalog loaded;
+        if (fromSource && Files.exists(source)) {
+            loaded = CharacterCatalog.persist(CatalogBuilder.read(source), catalog);
+        } else if (Files.exists(catalog)) {
+            loaded = CharacterCatalog.open(catalog);
+        } else {
+            return false;
+        }
+        CharacterCatalog previous = CharacterCatalog.getDefault();
+        // Al compilar el texto se reescribe el compilado, que vuelve a avisar con el mismo contenido
+        if (loaded.sameContent(previous)) {
+            return false;
+        }
+        CharacterCatalog.publish(loaded);
+        LOGGER.log(System.Logger.Level.INFO, "Catálogo recargado: " + loaded.size() + " personajes");
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,263 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Tablero de personajes virtualizado. En lugar de un {@code JLabel} por
+ * personaje, pinta directamente las celdas visibles a partir del
+ * {@link CharacterCatalog} y pide los retratos a {@link ImageCache} solo
+ * cuando la celda entra en pantalla. Los personajes tachados se guardan en un
+ * {@link BitSet}, así que el coste en memoria no depende del tamaño del
+ * tablero. Los retratos del atlas se escalan al pintarlos, de modo que cambiar
+ * el tamaño de la ventana no crea imágenes nuevas.
+ */
+public class CharacterBoard extends JComponent implements Scrollable {
+
+    private static final int GAP_X = 12;
+    private static final int GAP_Y = 3;
+    private static final Color CROSSED_COLOR = new Color(0xEEEEEE);
+
+    private CharacterCatalog catalog;
+    private final BitSet crossed = new BitSet();
+    private int columns = 3;
+    // Filas que caben en el área visible; el alto de celda se ajusta a ellas
+    private int visibleRows = 3;
+    // Cargas que ya repintarán el tablero al terminar: una por imagen, no una por cada pintado
+    private final Set<CompletableFuture<BufferedImage>> awaited = new HashSet<>();
+
+    public CharacterBoard() {
+        setOpaque(true);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int cell = cellAt(e.getX(), e.getY());
+                if (cell >= 0) {
+                    toggleCrossed(cell);
+                }
+            }
+        });
+    }
+
+    /**
+     * Muestra todos los personajes de un catálogo y borra los tachados.
+     *
+     * @param catalog Catálogo de personajes.
+     */
+    public void setCatalog(CharacterCatalog catalog) {
+        this.catalog = catalog;
+        crossed.clear();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Pide a {@link ImageCache} en segundo plano los retratos que se verán
+     * al mostrar {@code catalog} en este tablero: los del atlas tal cual y el
+     * resto ya escalados al tamaño de celda actual. Solo sirve una vez que el
+     * tablero tiene tamaño.
+     *
+     * @param catalog Catálogo que se va a mostrar.
+     */
+    public void prefetch(CharacterCatalog catalog) {
+        if (getWidth() <= 0) {
+            return;
+        }
+        int w = cellWidth();
+        int h = cellHeight();
+        int visible = Math.min(catalog.size(), columns * (visibleRows + 1));
+        for (int character = 0; character < visible; character++) {
+            String portrait = catalog.portrait(character);
+            if (portrait != null) {
+                ImageCache.getInstance().forPainting(portrait, w, h);
+            }
+        }
+    }
+
+    public CharacterCatalog getCatalog() {
+        return catalog;
+    }
+
+    public void setColumns(int columns) {
+        this.columns = Math.max(1, columns);
+        revalidate();
+        repaint();
+    }
+
+    public void setVisibleRows(int visibleRows) {
+        this.visibleRows = Math.max(1, visibleRows);
+        revalidate();
+        repaint();
+    }
+
+    public boolean isCrossed(int character) {
+        return crossed.get(character);
+    }
+
+    /**
+     * Tacha un personaje o, si ya estaba tachado, lo vuelve a mostrar.
+     *
+     * @param character Índice del personaje.
+     */
+    public void toggleCrossed(int character) {
+        crossed.flip(character);
+        repaint(cellBounds(character));
+    }
+
+    /**
+     * Vuelve a mostrar todos los personajes.
+     */
+    public void clearCrossed() {
+        crossed.clear();
+        repaint();
+    }
+
+    private int characterCount() {
+        return catalog == null ? 0 : catalog.size();
+    }
+
+    private int rows() {
+        return (characterCount() + columns - 1) / columns;
+    }
+
+    private int cellWidth() {
+        return Math.max(1, (getWidth() - GAP_X * (columns - 1)) / columns);
+    }
+
+    private int cellHeight() {
+        int height = getParent() instanceof JViewport viewport ? viewport.getHeight() : getHeight();
+        return Math.max(1, (height - GAP_Y * (visibleRows - 1)) / visibleRows);
+    }
+
+    private Rectangle cellBounds(int character) {
+        int w = cellWidth();
+        int h = cellHeight();
+        return new Rectangle((character % columns) * (w + GAP_X), (character / columns) * (h + GAP_Y), w, h);
+    }
+
+    private int cellAt(int x, int y) {
+        int column = x / (cellWidth() + GAP_X);
+        int row = y / (cellHeight() + GAP_Y);
+        int character = row * columns + column;
+        if (column >= columns || character >= characterCount() || !cellBounds(character).contains(x, y)) {
+            return -1;
+        }
+        return character;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (catalog == null) {
+            return;
+        }
+        int w = cellWidth();
+        int h = cellHeight();
+        // Los retratos del atlas se escalan al vuelo a la celda
+        ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        // Solo se recorren las filas que intersectan con la zona a repintar
+        int firstRow = Math.max(0, clip.y / (h + GAP_Y));
+        int lastRow = Math.min(rows() - 1, (clip.y + clip.height) / (h + GAP_Y));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = 0; column < columns; column++) {
+                int character = row * columns + column;
+                if (character >= characterCount()) {
+                    break;
+                }
+                paintCell(g, character, column * (w + GAP_X), row * (h + GAP_Y), w, h);
+            }
+        }
+    }
+
+    private void paintCell(Graphics g, int character, int x, int y, int w, int h) {
+        if (crossed.get(character)) {
+            g.setColor(CROSSED_COLOR);
+            g.fillRect(x, y, w, h);
+            g.setColor(Color.GRAY);
+            g.drawString(catalog.name(character), x + 6, y + h / 2);
+        } else {
+            String portrait = catalog.portrait(character);
+            CompletableFuture<BufferedImage> image = portrait == null ? null
+                    : ImageCache.getInstance().forPainting(portrait, w, h);
+            if (image != null && image.isDone() && !image.isCompletedExceptionally() && image.join() != null) {
+                g.drawImage(image.join(), x, y, w, h, null);
+            } else {
+                g.setColor(Color.LIGHT_GRAY);
+                g.fillRect(x, y, w, h);
+                if (image != null && !image.isDone()) {
+                    repaintWhenLoaded(image);
+                } else {
+                    // Sin retrato, o no se pudo cargar: se muestra el nombre
+                    g.setColor(Color.DARK_GRAY);
+                    g.drawString(catalog.name(character), x + 6, y + h / 2);
+                }
+            }
+        }
+        g.setColor(Color.GRAY);
+        g.drawRect(x, y, w - 1, h - 1);
+    }
+
+    // Se repinta cuando termine la carga; las celdas que comparten imagen esperan a la misma
+    private void repaintWhenLoaded(CompletableFuture<BufferedImage> image) {
+        if (awaited.add(image)) {
+            image.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                awaited.remove(image);
+                repaint();
+            }));
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        int h = getParent() instanceof JViewport ? cellHeight() : 80;
+        return new Dimension(columns * 80 + GAP_X * (columns - 1), Math.max(1, rows() * (h + GAP_Y) - GAP_Y));
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? Math.max(1, (cellHeight() + GAP_Y) / 4) : 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport viewport && viewport.getHeight() >= getPreferredSize().height;
+    }
+}
@@ -0,0 +1,620 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Catálogo de personajes indexado por bits. Cada nombre de característica se
+ * interna una única vez a un identificador entero y cada personaje se guarda
+ * como una máscara de bits, de modo que comprobar si un personaje tiene una
+ * característica es un único AND.
+ * <p>
+ * Todo el catálogo vive en un único búfer con el formato del fichero
+ * compilado ({@code .catalog}, big-endian):
+ * <pre>
+ * cabecera   MAGIC, VERSION, personajes, características, palabras por máscara,
+ *            palabras por columna, capacidad del índice, bytes de cadenas,
+ *            huella (long), huella del texto de origen (long, 0 si no salió de un texto)
+ * int[]      cadena de cada característica
+ * int[]      cadena del nombre de cada personaje
+ * int[]      cadena del retrato de cada personaje (-1 si no tiene)
+ * int[2][]   índice de nombres: hash del nombre en minúsculas, personaje + 1
+ * long[]     máscaras de los personajes (alineadas a 8 bytes)
+ * long[]     columnas: personajes de cada característica (la traspuesta)
+ * cadenas    longitud (u16) y UTF-8, referenciadas por su posición
+ * </pre>
+ * Un catálogo compilado se abre con {@link #open(Path)} proyectando el
+ * fichero en memoria: solo se crean objetos para el diccionario de
+ * características, ninguno por personaje, así que un catálogo de un millón de
+ * personajes se abre en milisegundos. Los nombres y retratos se decodifican
+ * al pedirlos.
+ * <p>
+ * Un catálogo no cambia nunca. El del juego ({@link #getDefault()}) se
+ * sustituye entero cuando {@link CatalogReloader} publica uno nuevo; quien ya
+ * tenía el anterior lo sigue usando.
+ */
+public final class CharacterCatalog {
+
+    static final int MAGIC = 0x57574343; // "WWCC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    // Una cadena como mucho ocupa lo que cabe en su longitud de 16 bits
+    static final int MAX_STRING_BYTES = 0xFFFF;
+
+    /**
+     * Catálogo compilado del juego. Si no existe, o no salió del catálogo de
+     * texto incluido en el classpath ({@value #DEFAULT_SOURCE}) ni del que
+     * edita el jugador ({@link CatalogReloader#DEFAULT_SOURCE}), se compila a
+     * partir del incluido.
+     */
+    public static final Path DEFAULT_PATH = Paths.get("Data", "characters.catalog");
+    static final String DEFAULT_SOURCE = "/catalog/characters.txt";
+
+    private static final System.Logger LOGGER = System.getLogger(CharacterCatalog.class.getName());
+    // Catálogo publicado: se lee sin cerrojo y solo se sustituye entero. Se carga al pedirlo por
+    // primera vez, así que las herramientas que solo compilan catálogos no tocan Data/
+    private static volatile CharacterCatalog current;
+
+    private final ByteBuffer data;
+    private final int size;
+    private final String[] attributeNames;
+    private final Map<String, Integer> attributeIds;
+    // Número de palabras de 64 bits que ocupa la máscara de cada personaje
+    private final int words;
+    // Número de palabras de 64 bits que ocupa el conjunto de personajes de una característica
+    private final int characterWords;
+    private final int hashCapacity;
+    private final long fingerprint;
+    private final long sourceHash;
+    // Posición de cada sección en el búfer
+    private final int nameRefs;
+    private final int portraitRefs;
+    private final int hashTable;
+    // Máscaras de todos los personajes una detrás de otra: [personaje * words + palabra]
+    private final int masks;
+    // Traspuesta de las máscaras, agrupada por palabra: [palabra * attributeCount + característica]
+    private final int columns;
+    private final int strings;
+
+    /**
+     * Construye el catálogo a partir de una lista bidimensional con el mismo
+     * formato que usaba {@code GameScreen}: el índice 0 de cada subarreglo es
+     * el nombre y el resto son sus características.
+     *
+     * @param charactersList Lista de personajes con sus características.
+     */
+    public CharacterCatalog(String[][] charactersList) {
+        this(charactersList, null);
+    }
+
+    /**
+     * Construye el catálogo con el retrato de cada personaje. Se compila en
+     * memoria al mismo formato que el fichero.
+     *
+     * @param charactersList Lista de personajes con sus características.
+     * @param portraits Ruta del retrato de cada personaje, en el mismo orden
+     * que {@code charactersList} (puede ser {@code null}).
+     */
+    public CharacterCatalog(String[][] charactersList, String[] portraits) {
+        this(compile(charactersList, portraits, 0));
+    }
+
+    /**
+     * Construye el catálogo compilado de un catálogo en texto.
+     *
+     * @param charactersList Lista de personajes con sus características.
+     * @param portraits Ruta del retrato de cada personaje.
+     * @param sourceHash Huella del texto ({@link CatalogBuilder#sourceHash}).
+     */
+    CharacterCatalog(String[][] charactersList, String[] portraits, long sourceHash) {
+        this(compile(charactersList, portraits, sourceHash));
+    }
+
+    private CharacterCatalog(ByteBuffer data) {
+        this.data = data;
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Formato de catálogo no reconocido");
+        }
+        size = data.getInt(8);
+        int attributes = data.getInt(12);
+        words = data.getInt(16);
+        characterWords = data.getInt(20);
+        hashCapacity = data.getInt(24);
+        int stringBytes = data.getInt(28);
+        fingerprint = data.getLong(32);
+        sourceHash = data.getLong(40);
+
+        int attributeRefs = HEADER_BYTES;
+        nameRefs = attributeRefs + attributes * Integer.BYTES;
+        portraitRefs = nameRefs + size * Integer.BYTES;
+        hashTable = portraitRefs + size * Integer.BYTES;
+        masks = align8(hashTable + hashCapacity * 2 * Integer.BYTES);
+        columns = masks + size * words * Long.BYTES;
+        strings = columns + attributes * characterWords * Long.BYTES;
+        if (size < 0 || words != Math.max(1, (attributes + 63) >>> 6) || characterWords != Math.max(1, (size + 63) >>> 6)
+                || Integer.bitCount(hashCapacity) != 1 || (long) strings + stringBytes != data.limit()) {
+            throw new IllegalArgumentException("Catálogo dañado o truncado");
+        }
+
+        // El diccionario de características es lo único que se pasa a objetos
+        attributeNames = new String[attributes];
+        attributeIds = new HashMap<>(attributes * 2);
+        for (int a = 0; a < attributes; a++) {
+            attributeNames[a] = string(data.getInt(attributeRefs + a * Integer.BYTES));
+            attributeIds.put(attributeNames[a], a);
+        }
+    }
+
+    private static int align8(int position) {
+        return (position + 7) & ~7;
+    }
+
+    /**
+     * Abre un catálogo compilado proyectándolo en memoria.
+     *
+     * @param path Fichero {@code .catalog}.
+     * @return El catálogo.
+     * @throws IOException Si no se puede leer o no tiene el formato esperado.
+     */
+    public static CharacterCatalog open(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catálogo demasiado grande: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return new CharacterCatalog(buffer);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage() + ": " + path, ex);
+        }
+    }
+
+    /**
+     * Guarda el catálogo compilado. Se escribe en un temporal que se renombra,
+     * así que quien lo esté leyendo nunca ve un fichero a medias.
+     *
+     * @param path Fichero de destino.
+     * @throws IOException Si no se puede escribir.
+     */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // No se usa createTempFile, que lo crearía solo legible por su dueño
+        Path temp = parent.resolve(path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer content = data.duplicate().clear();
+                while (content.hasRemaining()) {
+                    out.write(content);
+                }
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Devuelve el catálogo con los personajes del juego. Se comparte entre
+     * partidas y puede cambiar si se recarga: quien necesite el mismo
+     * catálogo durante toda una partida debe guardarse el que obtuvo.
+     *
+     * @return El catálogo por defecto.
+     */
+    public static CharacterCatalog getDefault() {
+        CharacterCatalog catalog = current;
+        if (catalog == null) {
+            synchronized (CharacterCatalog.class) {
+                catalog = current;
+                if (catalog == null) {
+                    current = catalog = loadDefault();
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Sustituye el catálogo del juego. Las partidas siguientes usan el nuevo.
+     *
+     * @param catalog Nuevo catálogo.
+     */
+    static void publish(CharacterCatalog catalog) {
+        if (catalog.size() == 0) {
+            throw new IllegalArgumentException("Catálogo vacío");
+        }
+        current = catalog;
+    }
+
+    // Abre Data/characters.catalog si salió del texto incluido o del que edita el jugador; si no, lo compila
+    private static CharacterCatalog loadDefault() {
+        byte[] bundled;
+        try {
+            bundled = CatalogBuilder.resourceBytes(DEFAULT_SOURCE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo leer el catálogo " + DEFAULT_SOURCE, ex);
+        }
+        if (Files.exists(DEFAULT_PATH)) {
+            try {
+                CharacterCatalog compiled = open(DEFAULT_PATH);
+                if (compiled.sourceHash != 0 && (compiled.sourceHash == CatalogBuilder.sourceHash(bundled)
+                        || compiled.sourceHash == editedSourceHash())) {
+                    return compiled;
+                }
+                // Una versión nueva del juego trae otros personajes
+                LOGGER.log(System.Logger.Level.INFO, "El catálogo compilado es de otra versión; se vuelve a compilar");
+            } catch (IOException ex) {
+                LOGGER.log(System.Logger.Level.WARNING, "Se vuelve a compilar el catálogo: " + ex.getMessage());
+            }
+        }
+        CharacterCatalog catalog;
+        try {
+            catalog = CatalogBuilder.read(bundled, DEFAULT_SOURCE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("No se pudo leer el catálogo " + DEFAULT_SOURCE, ex);
+        }
+        return persist(catalog, DEFAULT_PATH);
+    }
+
+    // Huella del catálogo en texto que edita el jugador, o 0 si no hay
+    private static long editedSourceHash() {
+        try {
+            return Files.exists(CatalogReloader.DEFAULT_SOURCE)
+                    ? CatalogBuilder.sourceHash(Files.readAllBytes(CatalogReloader.DEFAULT_SOURCE)) : 0;
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Guarda un catálogo compilado en memoria y lo vuelve a abrir proyectado
+     * desde el fichero. Si no se puede guardar se sigue usando el de memoria.
+     *
+     * @param catalog Catálogo compilado en memoria.
+     * @param path Fichero de destino.
+     * @return El catálogo proyectado, o {@code catalog} si no se pudo guardar.
+     */
+    static CharacterCatalog persist(CharacterCatalog catalog, Path path) {
+        try {
+            catalog.write(path);
+            return open(path);
+        } catch (IOException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "No se pudo guardar el catálogo compilado", ex);
+            return catalog;
+        }
+    }
+
+    /**
+     * Compila una lista de personajes al formato del fichero.
+     *
+     * @param charactersList Nombre y características de cada personaje.
+     * @param portraits Retrato de cada personaje (puede ser {@code null}).
+     * @param sourceHash Huella del texto del que sale, o 0.
+     * @return El búfer con el catálogo compilado.
+     */
+    static ByteBuffer compile(String[][] charactersList, String[] portraits, long sourceHash) {
+        if (portraits != null && portraits.length != charactersList.length) {
+            throw new IllegalArgumentException("Hay " + charactersList.length + " personajes pero "
+                    + portraits.length + " retratos");
+        }
+        int size = charactersList.length;
+
+        // Primera pasada: internar los nombres de las características
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> attributes = new ArrayList<>();
+        for (String[] character : charactersList) {
+            for (int j = 1; j < character.length; j++) {
+                if (!ids.containsKey(character[j])) {
+                    ids.put(character[j], attributes.size());
+                    attributes.add(character[j]);
+                }
+            }
+        }
+        int attributeCount = attributes.size();
+        int words = Math.max(1, (attributeCount + 63) >>> 6);
+        int characterWords = Math.max(1, (size + 63) >>> 6);
+        int hashCapacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+
+        // Segunda pasada: activar el bit de cada característica del personaje
+        long[] maskData = new long[size * words];
+        long[] columnData = new long[attributeCount * characterWords];
+        for (int i = 0; i < size; i++) {
+            for (int j = 1; j < charactersList[i].length; j++) {
+                int id = ids.get(charactersList[i][j]);
+                maskData[i * words + (id >>> 6)] |= 1L << id;
+                columnData[(i >>> 6) * attributeCount + id] |= 1L << i;
+            }
+        }
+
+        // Tabla de cadenas: cada cadena distinta se guarda una sola vez
+        Strings strings = new Strings();
+        int[] attributeRefs = new int[attributeCount];
+        for (int a = 0; a < attributeCount; a++) {
+            attributeRefs[a] = strings.add(attributes.get(a));
+        }
+        int[] names = new int[size];
+        int[] portraitRefs = new int[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = strings.add(charactersList[i][0]);
+            portraitRefs[i] = portraits == null || portraits[i] == null ? -1 : strings.add(portraits[i]);
+        }
+
+        long[] hashData = new long[hashCapacity];
+        for (int i = 0; i < size; i++) {
+            String key = charactersList[i][0].trim().toLowerCase(Locale.ROOT);
+            int hash = key.hashCode();
+            int slot = mix(hash) & (hashCapacity - 1);
+            while (hashData[slot] != 0) {
+                int other = (int) hashData[slot] - 1;
+                if ((int) (hashData[slot] >>> 32) == hash
+                        && charactersList[other][0].trim().toLowerCase(Locale.ROOT).equals(key)) {
+                    // Dos personajes con el mismo nombre: se queda el primero
+                    break;
+                }
+                slot = (slot + 1) & (hashCapacity - 1);
+            }
+            if (hashData[slot] == 0) {
+                hashData[slot] = ((long) hash << 32) | (i + 1);
+            }
+        }
+
+        int masksAt = align8(HEADER_BYTES + (attributeCount + 2 * size + 2 * hashCapacity) * Integer.BYTES);
+        int stringsAt = masksAt + (maskData.length + columnData.length) * Long.BYTES;
+        ByteBuffer out = ByteBuffer.allocate(stringsAt + strings.size());
+        out.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(attributeCount).putInt(words).putInt(characterWords)
+                .putInt(hashCapacity).putInt(strings.size()).putLong(fingerprint(charactersList, attributes, maskData))
+                .putLong(sourceHash);
+        for (int ref : attributeRefs) {
+            out.putInt(ref);
+        }
+        for (int ref : names) {
+            out.putInt(ref);
+        }
+        for (int ref : portraitRefs) {
+            out.putInt(ref);
+        }
+        for (long entry : hashData) {
+            out.putInt((int) (entry >>> 32)).putInt((int) entry);
+        }
+        out.position(masksAt);
+        for (long mask : maskData) {
+            out.putLong(mask);
+        }
+        for (long column : columnData) {
+            out.putLong(column);
+        }
+        strings.writeTo(out);
+        return out.clear();
+    }
+
+    // Tabla de cadenas en construcción: posición de cada cadena ya añadida
+    private static final class Strings {
+
+        private final Map<String, Integer> positions = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int size;
+
+        int add(String value) {
+            Integer known = positions.get(value);
+            if (known != null) {
+                return known;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) {
+                throw new IllegalArgumentException("Cadena demasiado larga: " + value.substring(0, 32) + "…");
+            }
+            int position = size;
+            positions.put(value, position);
+            encoded.add(bytes);
+            size += 2 + bytes.length;
+            return position;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(ByteBuffer out) {
+            for (byte[] bytes : encoded) {
+                out.putShort((short) bytes.length).put(bytes);
+            }
+        }
+    }
+
+    // Reparte los hash de String, que para nombres parecidos caen en posiciones vecinas
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Huella del contenido: nombres, características y máscaras.
+     */
+    private static long fingerprint(String[][] charactersList, List<String> attributes, long[] maskData) {
+        long hash = 1125899906842597L;
+        for (String[] character : charactersList) {
+            hash = 31 * hash + character[0].hashCode();
+        }
+        for (String attribute : attributes) {
+            hash = 31 * hash + attribute.hashCode();
+        }
+        for (long mask : maskData) {
+            hash = 31 * hash + mask;
+        }
+        return hash;
+    }
+
+    // Decodifica la cadena que empieza en la posición indicada de la tabla
+    private String string(int ref) {
+        int at = strings + ref;
+        int length = Short.toUnsignedInt(data.getShort(at));
+        byte[] bytes = new byte[length];
+        data.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int attributeCount() {
+        return attributeNames.length;
+    }
+
+    public String name(int character) {
+        return string(data.getInt(nameRefs + checkIndex(character) * Integer.BYTES));
+    }
+
+    /**
+     * @param character Índice del personaje.
+     * @return Ruta del retrato en el classpath o {@code null} si no tiene.
+     */
+    public String portrait(int character) {
+        int ref = data.getInt(portraitRefs + checkIndex(character) * Integer.BYTES);
+        return ref < 0 ? null : string(ref);
+    }
+
+    /**
+     * Compara byte a byte con otro catálogo, retratos incluidos.
+     *
+     * @param other Otro catálogo.
+     * @return {@code true} si los dos tienen exactamente el mismo contenido.
+     */
+    boolean sameContent(CharacterCatalog other) {
+        // Solo se lee por posición absoluta, así que los dos búferes siguen enteros
+        return data.equals(other.data);
+    }
+
+    private int checkIndex(int character) {
+        if (character < 0 || character >= size) {
+            throw new IndexOutOfBoundsException("Personaje fuera del catálogo: " + character);
+        }
+        return character;
+    }
+
+    public String attributeName(int attribute) {
+        return attributeNames[attribute];
+    }
+
+    /**
+     * Obtiene el identificador interno de una característica.
+     *
+     * @param attribute Nombre de la característica (por ejemplo "barba").
+     * @return El identificador o -1 si ningún personaje la tiene.
+     */
+    public int attributeId(String attribute) {
+        Integer id = attributeIds.get(attribute);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Busca un personaje por su nombre sin distinguir mayúsculas.
+     *
+     * @param name Nombre del personaje.
+     * @return El índice del personaje o -1 si no existe.
+     */
+    public int indexOf(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        int hash = key.hashCode();
+        int slot = mix(hash) & (hashCapacity - 1);
+        while (true) {
+            int at = hashTable + slot * 2 * Integer.BYTES;
+            int character = data.getInt(at + Integer.BYTES) - 1;
+            if (character < 0) {
+                return -1;
+            }
+            if (data.getInt(at) == hash && name(character).trim().toLowerCase(Locale.ROOT).equals(key)) {
+                return character;
+            }
+            slot = (slot + 1) & (hashCapacity - 1);
+        }
+    }
+
+    /**
+     * Comprueba si un personaje tiene una característica con un único AND
+     * sobre su máscara.
+     *
+     * @param character Índice del personaje.
+     * @param attribute Identificador de la característica.
+     * @return {@code true} si el personaje tiene la característica.
+     */
+    public boolean hasAttribute(int character, int attribute) {
+        if (attribute < 0) {
+            return false;
+        }
+        return (data.getLong(masks + (character * words + (attribute >>> 6)) * Long.BYTES) & (1L << attribute)) != 0;
+    }
+
+    public boolean hasAttribute(int character, String attribute) {
+        return hasAttribute(character, attributeId(attribute));
+    }
+
+    /**
+     * Número de palabras de 64 bits necesarias para representar un conjunto
+     * de personajes como bitset.
+     *
+     * @return Palabras por conjunto de personajes.
+     */
+    public int characterWords() {
+        return characterWords;
+    }
+
+    /**
+     * Palabra {@code word} del bitset de personajes que tienen la
+     * característica {@code attribute}.
+     *
+     * @param attribute Identificador de la característica.
+     * @param word Índice de la palabra de 64 bits.
+     * @return Los 64 personajes de esa palabra que tienen la característica.
+     */
+    public long attributeWord(int attribute, int word) {
+        return data.getLong(columns + (word * attributeNames.length + attribute) * Long.BYTES);
+    }
+
+    /**
+     * Huella del contenido del catálogo (nombres, características y máscaras).
+     * Sirve para detectar ficheros precalculados que ya no corresponden al
+     * catálogo actual.
+     *
+     * @return Un hash de 64 bits del catálogo.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Reconstruye la lista de características de un personaje (útil para
+     * depuración, no para el camino caliente).
+     *
+     * @param character Índice del personaje.
+     * @return Nombres de las características del personaje.
+     */
+    public String[] attributesOf(int character) {
+        List<String> result = new ArrayList<>();
+        for (int a = 0; a < attributeNames.length; a++) {
+            if (hasAttribute(character, a)) {
+                result.add(attributeNames[a]);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+}
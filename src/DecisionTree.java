@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Árbol de decisión precalculado por {@link DecisionTreeBuilder}. Se carga con
+ * una única proyección en memoria del fichero y en tiempo de juego solo se
+ * avanza un nodo por cada pregunta respondida.
+ * <p>
+ * Formato (enteros big-endian): cabecera {@code MAGIC, VERSION, huella del
+ * catálogo (long), número de nodos, raíz} y a continuación tres enteros por
+ * nodo {@code característica, sí, no}. Si la característica es
+ * {@link #GUESS} el nodo es una adivinanza: "sí" es el personaje propuesto y
+ * "no" el siguiente nodo a probar si se falla (o -1). Los nodos están en
+ * preorden, así que los hijos siempre van detrás de su padre; al cargar se
+ * comprueba, junto con los rangos de características y personajes, de modo
+ * que un fichero dañado no puede hacer que un recorrido se salga del árbol ni
+ * entre en un ciclo.
+ */
+public final class DecisionTree {
+
+    static final int MAGIC = 0x57574454; // "WWDT"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 6;
+    static final int GUESS = -1;
+
+    /**
+     * Ruta del árbol precalculado para el catálogo por defecto.
+     */
+    public static final Path DEFAULT_PATH = Paths.get("Data", "characters.tree");
+
+    // Árbol del catálogo por defecto junto al catálogo para el que se cargó
+    private record Loaded(CharacterCatalog catalog, DecisionTree tree) {
+    }
+
+    private static volatile Loaded defaultTree;
+
+    private final IntBuffer nodes;
+    private final int nodeCount;
+    private final int root;
+
+    private DecisionTree(IntBuffer data) {
+        this.nodeCount = data.get(4);
+        this.root = data.get(5);
+        this.nodes = data.position(HEADER_INTS).slice();
+    }
+
+    /**
+     * Proyecta en memoria un árbol guardado en disco.
+     *
+     * @param path Fichero generado por {@link DecisionTreeBuilder}.
+     * @param catalog Catálogo con el que se debe corresponder el árbol.
+     * @return El árbol cargado.
+     * @throws IOException Si no se puede leer o no corresponde al catálogo.
+     */
+    public static DecisionTree load(Path path, CharacterCatalog catalog) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        IntBuffer data = buffer.asIntBuffer();
+        if (data.limit() < HEADER_INTS || data.get(0) != MAGIC || data.get(1) != VERSION) {
+            throw new IOException("Formato de árbol no reconocido: " + path);
+        }
+        long fingerprint = ((long) data.get(2) << 32) | (data.get(3) & 0xFFFFFFFFL);
+        if (fingerprint != catalog.fingerprint()) {
+            throw new IOException("El árbol " + path + " no corresponde al catálogo actual");
+        }
+        int nodeCount = data.get(4);
+        if (nodeCount < 0 || data.limit() < HEADER_INTS + nodeCount * 3L) {
+            throw new IOException("Árbol truncado: " + path);
+        }
+        validate(data, nodeCount, catalog, path);
+        return new DecisionTree(data);
+    }
+
+    // Comprueba la raíz y los hijos de cada nodo antes de fiarse del fichero
+    private static void validate(IntBuffer data, int nodeCount, CharacterCatalog catalog, Path path) throws IOException {
+        int root = data.get(5);
+        if (root < -1 || root >= nodeCount) {
+            throw new IOException("Raíz fuera del árbol en " + path);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            int base = HEADER_INTS + node * 3;
+            int attribute = data.get(base);
+            int yes = data.get(base + 1);
+            if (attribute == GUESS) {
+                if (yes < 0 || yes >= catalog.size()) {
+                    throw new IOException("Personaje no válido en el nodo " + node + " de " + path);
+                }
+            } else if (attribute < 0 || attribute >= catalog.attributeCount() || !child(yes, node, nodeCount)) {
+                throw new IOException("Nodo " + node + " no válido en " + path);
+            }
+            if (!child(data.get(base + 2), node, nodeCount)) {
+                throw new IOException("Nodo " + node + " no válido en " + path);
+            }
+        }
+    }
+
+    // -1 (sin hijo) o un nodo posterior al padre
+    private static boolean child(int index, int parent, int nodeCount) {
+        return index == -1 || (index > parent && index < nodeCount);
+    }
+
+    /**
+     * Devuelve el árbol del catálogo por defecto, cargándolo la primera vez.
+     *
+     * @return El árbol o {@code null} si no se ha generado o está desfasado.
+     */
+    public static DecisionTree getDefault() {
+        return forCatalog(CharacterCatalog.getDefault());
+    }
+
+    /**
+     * Devuelve el árbol de {@link #DEFAULT_PATH} si corresponde a
+     * {@code catalog}. Se vuelve a cargar cuando cambia el catálogo.
+     *
+     * @param catalog Catálogo de la partida.
+     * @return El árbol o {@code null} si no se ha generado o está desfasado.
+     */
+    public static DecisionTree forCatalog(CharacterCatalog catalog) {
+        Loaded loaded = defaultTree;
+        if (loaded == null || loaded.catalog() != catalog) {
+            DecisionTree tree = null;
+            if (Files.exists(DEFAULT_PATH)) {
+                try {
+                    tree = load(DEFAULT_PATH, catalog);
+                } catch (IOException ex) {
+                    System.getLogger(DecisionTree.class.getName()).log(System.Logger.Level.WARNING, ex.getMessage());
+                }
+            }
+            loaded = new Loaded(catalog, tree);
+            defaultTree = loaded;
+        }
+        return loaded.tree();
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Un cursor situado en la raíz del árbol.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Recorrido del árbol durante una partida. No es seguro para hilos.
+     */
+    public final class Cursor {
+
+        private int node = root;
+
+        /**
+         * @return La característica por la que hay que preguntar, o -1 si el
+         * nodo actual es una adivinanza o se ha salido del árbol.
+         */
+        public int question() {
+            if (node < 0) {
+                return -1;
+            }
+            int attribute = nodes.get(node * 3);
+            return attribute == GUESS ? -1 : attribute;
+        }
+
+        /**
+         * @return El personaje que hay que adivinar, o -1 si el nodo actual es
+         * una pregunta o se ha salido del árbol.
+         */
+        public int guess() {
+            if (node < 0 || nodes.get(node * 3) != GUESS) {
+                return -1;
+            }
+            return nodes.get(node * 3 + 1);
+        }
+
+        /**
+         * Avanza un nodo según la respuesta. En un nodo de adivinanza la
+         * respuesta indica si se ha acertado.
+         *
+         * @param answer Respuesta a la pregunta o resultado de la adivinanza.
+         */
+        public void answer(boolean answer) {
+            if (node < 0) {
+                return;
+            }
+            if (nodes.get(node * 3) == GUESS) {
+                node = answer ? -1 : nodes.get(node * 3 + 2);
+            } else {
+                node = nodes.get(node * 3 + (answer ? 1 : 2));
+            }
+        }
+
+        /**
+         * Primer personaje alcanzable desde el nodo actual bajando siempre por
+         * la rama "sí". Sirve para adivinar cuando se acaban las preguntas
+         * antes de llegar a una hoja.
+         *
+         * @return Un personaje compatible con las respuestas o -1.
+         */
+        public int anyCandidate() {
+            int current = node;
+            while (current >= 0 && nodes.get(current * 3) != GUESS) {
+                current = nodes.get(current * 3 + 1);
+            }
+            return current < 0 ? -1 : nodes.get(current * 3 + 1);
+        }
+
+        public boolean isFinished() {
+            return node < 0;
+        }
+    }
+}
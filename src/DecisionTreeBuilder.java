@@ -0,0 +1,244 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Compila un {@link CharacterCatalog} en un {@link DecisionTree} y lo guarda
+ * en disco. En cada nodo se elige la pregunta de mayor ganancia de
+ * información (igual que {@link QuestionSolver}) y los dos subárboles se
+ * construyen en paralelo con fork/join.
+ * <p>
+ * Uso: {@code java DecisionTreeBuilder [salida]} (por defecto
+ * {@code Data/characters.tree}).
+ */
+public final class DecisionTreeBuilder {
+
+    // Por debajo de este número de candidatos no compensa repartir el trabajo
+    private static final int SEQUENTIAL_THRESHOLD = 256;
+
+    private final CharacterCatalog catalog;
+    private final int[] questions;
+
+    public DecisionTreeBuilder(CharacterCatalog catalog, int[] questions) {
+        this.catalog = catalog;
+        this.questions = questions.clone();
+    }
+
+    /**
+     * Crea un constructor que solo usa las preguntas de la botonera.
+     *
+     * @param engine Motor del juego.
+     * @return El constructor del árbol.
+     */
+    public static DecisionTreeBuilder forGame(GameEngine engine) {
+        int[] ids = new int[GameEngine.QUESTIONS.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = engine.questionId(i);
+        }
+        return new DecisionTreeBuilder(engine.catalog(), ids);
+    }
+
+    // Nodo temporal mientras se construye el árbol
+    private static final class Node {
+
+        final int attribute;
+        final Node yes;
+        final Node no;
+        final int character;
+        int index;
+
+        Node(int attribute, Node yes, Node no, int character) {
+            this.attribute = attribute;
+            this.yes = yes;
+            this.no = no;
+            this.character = character;
+        }
+    }
+
+    // Construye el subárbol de un conjunto de candidatos. El bitset solo cubre
+    // las palabras [offset, offset + candidates.length) del catálogo, para que los
+    // subárboles pequeños no arrastren palabras vacías.
+    private final class Split extends RecursiveTask<Node> {
+
+        private final long[] candidates;
+        private final int offset;
+        private final int count;
+        private final boolean[] asked;
+
+        Split(long[] candidates, int offset, int count, boolean[] asked) {
+            this.candidates = candidates;
+            this.offset = offset;
+            this.count = count;
+            this.asked = asked;
+        }
+
+        @Override
+        protected Node compute() {
+            int bestQuestion = -1;
+            int bestYes = 0;
+            double bestGain = 0;
+            for (int q = 0; q < questions.length; q++) {
+                if (asked[q] || questions[q] < 0) {
+                    continue;
+                }
+                int yes = 0;
+                for (int w = 0; w < candidates.length; w++) {
+                    if (candidates[w] != 0) {
+                        yes += Long.bitCount(candidates[w] & catalog.attributeWord(questions[q], offset + w));
+                    }
+                }
+                double gain = QuestionSolver.entropy(yes, count);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestQuestion = q;
+                    bestYes = yes;
+                }
+            }
+            if (bestQuestion < 0) {
+                return guessChain(candidates, offset);
+            }
+
+            int attribute = questions[bestQuestion];
+            long[] yesSet = new long[candidates.length];
+            long[] noSet = new long[candidates.length];
+            for (int w = 0; w < candidates.length; w++) {
+                long column = catalog.attributeWord(attribute, offset + w);
+                yesSet[w] = candidates[w] & column;
+                noSet[w] = candidates[w] & ~column;
+            }
+            boolean[] childAsked = asked.clone();
+            childAsked[bestQuestion] = true;
+
+            Split yesTask = child(yesSet, bestYes, childAsked);
+            Split noTask = child(noSet, count - bestYes, childAsked);
+            if (count < SEQUENTIAL_THRESHOLD) {
+                return new Node(attribute, yesTask.compute(), noTask.compute(), -1);
+            }
+            yesTask.fork();
+            Node no = noTask.compute();
+            return new Node(attribute, yesTask.join(), no, -1);
+        }
+
+        // Recorta las palabras vacías de los extremos del bitset del hijo
+        private Split child(long[] set, int childCount, boolean[] childAsked) {
+            int from = 0;
+            int to = set.length;
+            while (from < to && set[from] == 0) {
+                from++;
+            }
+            while (to > from && set[to - 1] == 0) {
+                to--;
+            }
+            long[] trimmed = from == 0 && to == set.length ? set : Arrays.copyOfRange(set, from, to);
+            return new Split(trimmed, offset + from, childCount, childAsked);
+        }
+    }
+
+    // Candidatos indistinguibles: se prueban uno detrás de otro
+    private static Node guessChain(long[] candidates, int offset) {
+        Node next = null;
+        for (int w = candidates.length - 1; w >= 0; w--) {
+            long word = candidates[w];
+            while (word != 0) {
+                int bit = 63 - Long.numberOfLeadingZeros(word);
+                next = new Node(DecisionTree.GUESS, null, next, ((offset + w) << 6) + bit);
+                word &= ~(1L << bit);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Construye el árbol y lo escribe en {@code output}. Se escribe primero en
+     * un fichero temporal y después se renombra, para que un lector nunca vea
+     * un árbol a medias.
+     *
+     * @param output Fichero de destino.
+     * @return Número de nodos escritos.
+     * @throws IOException Si no se puede escribir el fichero.
+     */
+    public int build(Path output) throws IOException {
+        long[] all = new long[catalog.characterWords()];
+        for (int i = 0; i < catalog.size(); i++) {
+            all[i >>> 6] |= 1L << i;
+        }
+        Node root = ForkJoinPool.commonPool().invoke(new Split(all, 0, catalog.size(), new boolean[questions.length]));
+
+        List<Node> order = number(root);
+        Path parent = output.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Como CharacterCatalog.write: sin createTempFile, que lo dejaría solo legible por su dueño
+        Path temp = parent.resolve(output.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                long fingerprint = catalog.fingerprint();
+                out.writeInt(DecisionTree.MAGIC);
+                out.writeInt(DecisionTree.VERSION);
+                out.writeInt((int) (fingerprint >>> 32));
+                out.writeInt((int) fingerprint);
+                out.writeInt(order.size());
+                out.writeInt(root == null ? -1 : root.index);
+                for (Node node : order) {
+                    out.writeInt(node.attribute);
+                    if (node.attribute == DecisionTree.GUESS) {
+                        out.writeInt(node.character);
+                    } else {
+                        out.writeInt(node.yes == null ? -1 : node.yes.index);
+                    }
+                    out.writeInt(node.no == null ? -1 : node.no.index);
+                }
+            }
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return order.size();
+    }
+
+    // Numera los nodos en preorden sin recursión (las cadenas de adivinanzas pueden ser largas)
+    private static List<Node> number(Node root) {
+        List<Node> order = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            node.index = order.size();
+            order.add(node);
+            if (node.no != null) {
+                pending.push(node.no);
+            }
+            if (node.yes != null) {
+                pending.push(node.yes);
+            }
+        }
+        return order;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path output = args.length > 0 ? Paths.get(args[0]) : DecisionTree.DEFAULT_PATH;
+        long start = System.nanoTime();
+        int nodes = forGame(GameEngine.getDefault()).build(output);
+        System.out.printf("%d nodos escritos en %s (%.1f ms)%n", nodes, output, (System.nanoTime() - start) / 1e6);
+    }
+}
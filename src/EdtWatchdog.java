@@ -0,0 +1,263 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Vigila el hilo de eventos de Swing. Se instala como {@link EventQueue}
+ * propia y mide lo que tarda en despacharse cada evento en
+ * {@link Metrics#EDT_DISPATCH}. Un hilo aparte ({@code edt-watchdog}) duerme
+ * mientras no se despacha nada; cuando empieza un evento espera hasta que se
+ * cumpla el umbral y, si el evento sigue en curso, copia la pila del hilo de
+ * eventos mientras sigue atascado. Así el vigilante no se despierta nunca con
+ * la aplicación parada y, con eventos seguidos, como mucho una vez por
+ * umbral. Cuando el evento termina, el bloqueo se añade a un fichero local
+ * rotativo ({@link #DEFAULT_PATH}) con su duración, el evento y la pila.
+ * <p>
+ * El hilo de eventos solo toma dos tiempos y suma al histograma, y despierta
+ * al vigilante si estaba dormido; no escribe ni crea objetos salvo al detectar
+ * un bloqueo. Escribir el fichero es cosa del hilo vigilante.
+ * <p>
+ * Propiedades: {@code wiw.edt.watchdog=false} lo desactiva y
+ * {@code wiw.edt.threshold} es el umbral en milisegundos (por defecto
+ * {@value #DEFAULT_THRESHOLD_MILLIS}, un fotograma a 60 Hz).
+ */
+public final class EdtWatchdog extends EventQueue {
+
+    static final long DEFAULT_THRESHOLD_MILLIS = 16;
+    /**
+     * Fichero de bloqueos; al pasar de {@value #MAX_FILE_BYTES} bytes se
+     * renombra a {@code .1} (y el {@code .1} a {@code .2}, etc.).
+     */
+    public static final Path DEFAULT_PATH = Paths.get("Logs", "edt-stalls.log");
+    static final long MAX_FILE_BYTES = 1 << 20;
+    static final int MAX_FILES = 3;
+    // Bloqueos pendientes de escribir; si el disco no da abasto se descartan
+    private static final int MAX_PENDING = 256;
+    private static final int MAX_FRAMES = 64;
+
+    private static final System.Logger LOGGER = System.getLogger(EdtWatchdog.class.getName());
+    private static EdtWatchdog installed;
+
+    // Bloqueo detectado, a falta de escribirlo
+    private record Stall(long when, long nanos, String event, StackTraceElement[] stack) {
+    }
+
+    private final long thresholdNanos;
+    private final Path path;
+    private final BlockingQueue<Stall> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread watcher;
+
+    // Estado del evento en curso: lo escribe el hilo de eventos y lo lee el vigilante
+    private volatile Thread dispatchThread;
+    private volatile long dispatchStart;
+    private volatile long sequence;
+    // Pila copiada por el vigilante para el evento número capturedSequence
+    private volatile StackTraceElement[] capturedStack;
+    private volatile long capturedSequence = -1;
+    // El vigilante duerme a la espera de que empiece un evento
+    private volatile boolean idle;
+
+    // Solo desde el hilo de eventos: profundidad de despachos anidados (diálogos modales)
+    private int depth;
+    private boolean nested;
+
+    /**
+     * @param thresholdMillis Milisegundos a partir de los cuales un evento
+     * cuenta como bloqueo.
+     * @param path Fichero de bloqueos.
+     */
+    public EdtWatchdog(long thresholdMillis, Path path) {
+        if (thresholdMillis <= 0) {
+            throw new IllegalArgumentException("Umbral no válido: " + thresholdMillis);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.path = path;
+        watcher = new Thread(this::watch, "edt-watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Instala el vigilante en la cola de eventos del sistema, salvo que esté
+     * desactivado por propiedad. Se llama una vez al arrancar, antes de crear
+     * ventanas.
+     *
+     * @return El vigilante instalado, o {@code null} si está desactivado.
+     */
+    public static synchronized EdtWatchdog install() {
+        if (installed == null && !"false".equals(System.getProperty("wiw.edt.watchdog"))) {
+            installed = new EdtWatchdog(Long.getLong("wiw.edt.threshold", DEFAULT_THRESHOLD_MILLIS), DEFAULT_PATH);
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+        }
+        return installed;
+    }
+
+    public long thresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * @return Bloqueos que no se escribieron porque había demasiados
+     * pendientes.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        // Un diálogo modal despacha eventos dentro de otro: el de fuera solo está esperando
+        boolean outerNested = nested;
+        if (depth > 0) {
+            outerNested = true;
+        }
+        depth++;
+        nested = false;
+        dispatchThread = Thread.currentThread();
+        long start = System.nanoTime();
+        long id = ++sequence;
+        dispatchStart = start;
+        if (idle) {
+            LockSupport.unpark(watcher);
+        }
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            dispatchStart = 0;
+            depth--;
+            if (!nested) {
+                Metrics.EDT_DISPATCH.record(elapsed);
+                if (elapsed >= thresholdNanos) {
+                    stalled(id, elapsed, event);
+                }
+            }
+            nested = outerNested;
+        }
+    }
+
+    // Solo se llega aquí en un bloqueo, así que crear objetos ya no importa
+    private void stalled(long id, long elapsed, AWTEvent event) {
+        Metrics.EDT_STALLS.increment();
+        StackTraceElement[] stack = capturedSequence == id ? capturedStack : null;
+        String description = event.getClass().getName() + "[" + event.paramString() + "] en "
+                + event.getSource().getClass().getName();
+        if (pending.offer(new Stall(System.currentTimeMillis(), elapsed, description, stack))) {
+            LockSupport.unpark(watcher);
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void watch() {
+        // Mientras dura un bloqueo ya copiado se mira de vez en cuando si ha empezado otro evento
+        long interval = Math.max(TimeUnit.MILLISECONDS.toNanos(1), thresholdNanos / 2);
+        while (!Thread.currentThread().isInterrupted()) {
+            Stall stall;
+            while ((stall = pending.poll()) != null) {
+                write(stall);
+            }
+            long start = dispatchStart;
+            if (start == 0) {
+                // Se anuncia antes de volver a mirar: o el hilo de eventos ve idle o aquí se ve su evento
+                idle = true;
+                if (dispatchStart == 0 && pending.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            long wait = start + thresholdNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            } else if (capturedSequence == sequence) {
+                LockSupport.parkNanos(this, interval);
+            } else {
+                sample();
+            }
+        }
+    }
+
+    // Copia la pila del hilo de eventos si el evento en curso ya pasa del umbral
+    private void sample() {
+        long id = sequence;
+        long start = dispatchStart;
+        Thread thread = dispatchThread;
+        if (start == 0 || thread == null || capturedSequence == id || System.nanoTime() - start < thresholdNanos) {
+            return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        // Si entretanto ha empezado otro evento la pila ya no es la del bloqueo
+        if (sequence == id && dispatchStart == start) {
+            capturedStack = stack;
+            capturedSequence = id;
+        }
+    }
+
+    private void write(Stall stall) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            if (Files.exists(path) && Files.size(path) >= MAX_FILE_BYTES) {
+                roll();
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(String.format("%s bloqueo de %.1f ms: %s%n",
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(stall.when()), ZoneId.systemDefault()),
+                        stall.nanos() / 1e6, stall.event()));
+                if (stall.stack() == null) {
+                    out.write("    (sin pila: terminó antes de que el vigilante lo viera)");
+                    out.newLine();
+                } else {
+                    int frames = Math.min(stall.stack().length, MAX_FRAMES);
+                    for (int i = 0; i < frames; i++) {
+                        out.write("    at " + stall.stack()[i]);
+                        out.newLine();
+                    }
+                    if (stall.stack().length > frames) {
+                        out.write("    ... " + (stall.stack().length - frames) + " más");
+                        out.newLine();
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "No se pudo escribir el bloqueo en " + path, ex);
+        }
+    }
+
+    // edt-stalls.log -> .1 -> .2 ... y el más antiguo se borra
+    private void roll() throws IOException {
+        Files.deleteIfExists(rolled(MAX_FILES - 1));
+        for (int i = MAX_FILES - 2; i >= 1; i--) {
+            if (Files.exists(rolled(i))) {
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rolled(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+}
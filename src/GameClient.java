@@ -0,0 +1,124 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Cliente de línea para {@link GameServer} por loopback. Cada llamada a
+ * {@link #send} envía una orden y espera su respuesta.
+ * <p>
+ * Su {@code main} sirve de prueba de carga del emparejamiento: abre
+ * {@code 2 * parejas} conexiones que piden rival a la vez, juegan un turno y
+ * abandonan, y al final muestra cuántos emparejamientos por segundo se han
+ * conseguido (sin contar el tiempo de abrir las conexiones).
+ */
+public final class GameClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    /**
+     * @param port Puerto del servidor en localhost.
+     * @throws IOException Si no se puede conectar.
+     */
+    public GameClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Envía una orden y devuelve la respuesta.
+     *
+     * @param command Orden del protocolo, sin salto de línea.
+     * @return La respuesta del servidor.
+     * @throws IOException Si se pierde la conexión.
+     */
+    public String send(String command) throws IOException {
+        out.write(command);
+        out.newLine();
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("El servidor ha cerrado la conexión");
+        }
+        return reply;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    // Un jugador: pide rival, juega su primer turno y abandona. Devuelve si se emparejó
+    private boolean play() throws IOException {
+        String[] matched = send("MATCH 10000").split(" ");
+        if (!matched[0].equals("MATCHED")) {
+            return false;
+        }
+        String match = matched[1];
+        if (matched[2].equals("0")) {
+            send("MASK " + match + " " + GameEngine.QUESTIONS[0]);
+        } else {
+            send("MWAIT " + match);
+        }
+        send("MLEAVE " + match);
+        return true;
+    }
+
+    /**
+     * Prueba de carga: {@code java GameClient [parejas] [puerto]}. Sin puerto
+     * arranca un servidor en el mismo proceso.
+     *
+     * @param args Número de parejas y puerto opcionales.
+     * @throws Exception Si falla la conexión o algún jugador.
+     */
+    public static void main(String[] args) throws Exception {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        GameServer server = args.length > 1 ? null : new GameServer(GameEngine.getDefault(), 0).start();
+        int port = server == null ? Integer.parseInt(args[1]) : server.port();
+        // Las conexiones se abren antes de medir: solo cuenta el emparejamiento y el turno
+        GameClient[] clients = new GameClient[pairs * 2];
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = new GameClient(port);
+            }
+            long start = System.nanoTime();
+            List<Future<Boolean>> results = new ArrayList<>(clients.length);
+            for (GameClient client : clients) {
+                results.add(players.submit(client::play));
+            }
+            int matched = 0;
+            for (Future<Boolean> result : results) {
+                matched += result.get() ? 1 : 0;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d jugadores emparejados en %.2f s: %.0f emparejamientos/s%n",
+                    matched, seconds, matched / 2 / seconds);
+        } finally {
+            for (GameClient client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
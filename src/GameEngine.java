@@ -0,0 +1,315 @@
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Motor del juego sin dependencias de AWT/Swing. Contiene las reglas que antes
+ * vivían en los listeners de {@code GameScreen} y en {@code AuxMethods}: la
+ * puntuación inicial, el coste de cada pregunta, el límite de intentos y la
+ * penalización de la barra de progreso. Crea {@link GameSession}s que se
+ * pueden jugar desde la interfaz, desde un bot o en simulaciones masivas.
+ */
+public final class GameEngine {
+
+    public static final int INITIAL_SCORE = 2000;
+    public static final int QUESTION_COST = 100;
+    public static final int MAX_QUESTIONS = 6;
+    public static final int INITIAL_PROGRESS = 100;
+
+    // Penalización de la barra de progreso según el número de pregunta (1..6)
+    private static final int[] PROGRESS_PENALTY = {10, 10, 15, 20, 25, 0};
+
+    /**
+     * Preguntas disponibles en la botonera del juego (nombres de los botones
+     * {@code jButton2}..{@code jButton16}).
+     */
+    public static final String[] QUESTIONS = {
+        "barba", "tatuaje", "humano", "especiales", "heroe", "volar", "sangre", "epoca",
+        "hombre", "modernas", "joven", "latigo", "amigo", "rostro", "villano"};
+
+    // Motor del catálogo publicado; se rehace al recargar el catálogo
+    private static volatile GameEngine current = new GameEngine(CharacterCatalog.getDefault());
+
+    private final CharacterCatalog catalog;
+    // Identificadores de las preguntas de la botonera dentro del catálogo (-1 si nadie la tiene)
+    private final int[] questionIds;
+
+    public GameEngine(CharacterCatalog catalog) {
+        this.catalog = catalog;
+        questionIds = new int[QUESTIONS.length];
+        for (int i = 0; i < QUESTIONS.length; i++) {
+            questionIds[i] = catalog.attributeId(QUESTIONS[i]);
+        }
+    }
+
+    /**
+     * Devuelve el motor que usa el catálogo por defecto. Si el catálogo se ha
+     * recargado se devuelve un motor nuevo; las sesiones creadas con el
+     * anterior siguen usando su catálogo.
+     *
+     * @return El motor compartido por la interfaz.
+     */
+    public static GameEngine getDefault() {
+        GameEngine engine = current;
+        CharacterCatalog catalog = CharacterCatalog.getDefault();
+        if (engine.catalog != catalog) {
+            // Si dos hilos llegan a la vez crean dos motores equivalentes; no hace falta cerrojo
+            engine = new GameEngine(catalog);
+            current = engine;
+        }
+        return engine;
+    }
+
+    public CharacterCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * Identificador en el catálogo de la pregunta {@code index} de
+     * {@link #QUESTIONS}.
+     *
+     * @param index Posición de la pregunta en la botonera.
+     * @return El identificador de la característica o -1.
+     */
+    public int questionId(int index) {
+        return questionIds[index];
+    }
+
+    /**
+     * Indica si {@code question} es una de las preguntas de la botonera
+     * ({@link #QUESTIONS}), aunque ningún personaje del catálogo tenga esa
+     * característica: en ese caso la respuesta es siempre NO.
+     *
+     * @param question Nombre de la característica.
+     * @return {@code true} si se puede preguntar.
+     */
+    public static boolean isQuestion(String question) {
+        for (String known : QUESTIONS) {
+            if (known.equals(question)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Crea una partida con un personaje secreto aleatorio.
+     *
+     * @return Una nueva sesión de juego.
+     */
+    public GameSession newSession() {
+        return newSession(RandomService.getDefault().nextInt(catalog.size()));
+    }
+
+    /**
+     * Crea una partida con el personaje secreto indicado.
+     *
+     * @param secret Índice del personaje secreto en el catálogo.
+     * @return Una nueva sesión de juego.
+     */
+    public GameSession newSession(int secret) {
+        return new GameSession(this, secret);
+    }
+
+    /**
+     * Penalización que se aplica a la barra de progreso al hacer la pregunta
+     * número {@code question} (empezando en 1).
+     *
+     * @param question Número de la pregunta.
+     * @return Puntos que se restan a la barra de progreso.
+     */
+    public int progressPenalty(int question) {
+        if (question < 1 || question > PROGRESS_PENALTY.length) {
+            return 0;
+        }
+        return PROGRESS_PENALTY[question - 1];
+    }
+
+    /**
+     * Estrategia de juego automática para simulaciones.
+     */
+    @FunctionalInterface
+    public interface Bot {
+
+        /**
+         * Juega una partida completa hasta que {@link GameSession#isOver()}
+         * sea verdadero.
+         *
+         * @param session Sesión a jugar.
+         * @param random Generador de números aleatorios del simulador.
+         */
+        void play(GameSession session, SplittableRandom random);
+    }
+
+    /**
+     * Bot que hace preguntas al azar y, al agotar los intentos, adivina el
+     * primer personaje que encaja con todas las respuestas.
+     */
+    public static final Bot RANDOM_BOT = (session, random) -> {
+        CharacterCatalog catalog = session.engine().catalog();
+        int[] asked = new int[MAX_QUESTIONS];
+        boolean[] answers = new boolean[MAX_QUESTIONS];
+        int count = 0;
+        while (!session.mustGuess() && !session.isOver()) {
+            int attribute = session.engine().questionId(random.nextInt(QUESTIONS.length));
+            asked[count] = attribute;
+            answers[count] = session.ask(attribute);
+            count++;
+        }
+        if (session.isOver()) {
+            return;
+        }
+        for (int c = 0; c < catalog.size(); c++) {
+            boolean matches = true;
+            for (int q = 0; q < count && matches; q++) {
+                matches = catalog.hasAttribute(c, asked[q]) == answers[q];
+            }
+            if (matches) {
+                session.guess(c);
+                return;
+            }
+        }
+        session.guess(0);
+    };
+
+    /**
+     * Crea un bot que pregunta siempre lo que sugiere {@link QuestionSolver}
+     * y adivina al quedar un único candidato o al agotar las preguntas. Cada
+     * bot guarda su propio solver, así que no debe compartirse entre hilos.
+     *
+     * @return Un nuevo bot basado en ganancia de información.
+     */
+    public static Bot solverBot() {
+        return new Bot() {
+            private QuestionSolver solver;
+
+            @Override
+            public void play(GameSession session, SplittableRandom random) {
+                if (solver == null) {
+                    solver = QuestionSolver.forGame(session.engine());
+                } else {
+                    solver.reset();
+                }
+                while (!session.isOver()) {
+                    int question = solver.bestQuestion();
+                    if (solver.candidateCount() <= 1 || question < 0 || session.mustGuess()) {
+                        int candidate = solver.firstCandidate();
+                        if (session.guess(candidate) || session.isOver()) {
+                            return;
+                        }
+                        solver.exclude(candidate);
+                    } else {
+                        solver.answer(question, session.ask(question));
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Crea un bot que recorre un árbol de decisión precalculado: cada turno
+     * cuesta un único salto de nodo.
+     *
+     * @param tree Árbol generado por {@link DecisionTreeBuilder}.
+     * @return Un nuevo bot basado en el árbol.
+     */
+    public static Bot treeBot(DecisionTree tree) {
+        return (session, random) -> {
+            DecisionTree.Cursor cursor = tree.cursor();
+            while (!session.isOver()) {
+                int question = cursor.question();
+                if (question >= 0 && !session.mustGuess()) {
+                    cursor.answer(session.ask(question));
+                    continue;
+                }
+                int candidate = question >= 0 ? cursor.anyCandidate() : cursor.guess();
+                boolean correct = session.guess(candidate);
+                if (correct || session.isOver() || question >= 0 || candidate < 0) {
+                    return;
+                }
+                cursor.answer(false);
+            }
+        };
+    }
+
+    /**
+     * Resultado agregado de una simulación.
+     *
+     * @param games Partidas jugadas.
+     * @param wins Partidas ganadas.
+     * @param totalScore Suma de las puntuaciones finales.
+     * @param totalQuestions Suma de las preguntas hechas.
+     */
+    public record Simulation(long games, long wins, long totalScore, long totalQuestions) {
+
+        public double winRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double averageScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+
+        public double averageQuestions() {
+            return games == 0 ? 0 : (double) totalQuestions / games;
+        }
+    }
+
+    /**
+     * Simula {@code games} partidas con el bot indicado. Reutiliza una única
+     * sesión para no generar basura por partida.
+     *
+     * @param games Número de partidas.
+     * @param seed Semilla para reproducir la simulación.
+     * @param bot Estrategia de juego.
+     * @return Estadísticas de la simulación.
+     */
+    public Simulation simulate(long games, long seed, Bot bot) {
+        SplittableRandom random = new SplittableRandom(seed);
+        GameSession session = new GameSession(this, 0);
+        long wins = 0;
+        long totalScore = 0;
+        long totalQuestions = 0;
+        for (long g = 0; g < games; g++) {
+            session.reset(random.nextInt(catalog.size()));
+            bot.play(session, random);
+            if (session.isWon()) {
+                wins++;
+            }
+            totalScore += session.score();
+            totalQuestions += session.questionsAsked();
+        }
+        return new Simulation(games, wins, totalScore, totalQuestions);
+    }
+
+    /**
+     * Ejecuta una simulación sin interfaz gráfica:
+     * {@code java GameEngine [partidas] [semilla] [random|solver|tree]}.
+     *
+     * @param args Número de partidas, semilla y bot opcionales.
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        String strategy = args.length > 2 ? args[2] : "random";
+        Bot bot = switch (strategy) {
+            case "solver" -> solverBot();
+            case "tree" -> {
+                DecisionTree tree = DecisionTree.getDefault();
+                if (tree == null) {
+                    throw new IllegalStateException("No hay árbol en " + DecisionTree.DEFAULT_PATH + ", ejecuta DecisionTreeBuilder");
+                }
+                yield treeBot(tree);
+            }
+            default -> RANDOM_BOT;
+        };
+        long start = System.nanoTime();
+        Simulation result = getDefault().simulate(games, seed, bot);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d partidas en %.2f s (%.0f partidas/s)%n", result.games(), seconds, result.games() / seconds);
+        System.out.printf("victorias %.1f%%, puntuación media %.1f, preguntas medias %.2f%n",
+                result.winRate() * 100, result.averageScore(), result.averageQuestions());
+    }
+}
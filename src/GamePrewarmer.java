@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.SwingUtilities;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Prepara la siguiente partida antes de que el jugador la pida. Mientras se
+ * muestra {@link IntroScreen} se construye en el hilo de eventos una
+ * {@link GameScreen} oculta (componentes, personaje secreto y tablero), se
+ * piden a {@link ImageCache} los retratos ya escalados al tamaño de su
+ * tablero y se abre la música de la partida en {@link MusicStreamer}. Al
+ * pulsar "Nueva partida" solo queda ponerle el nombre del jugador y
+ * mostrarla. Las estadísticas de los jugadores ({@link PlayerStats}) también
+ * se abren, se consultan y se actualizan en segundo plano, para no tocar el
+ * fichero en el hilo de eventos.
+ * <p>
+ * Al terminar cada ronda la ventana pide aquí la siguiente
+ * ({@link #prepareRound}), de modo que el personaje ya está sorteado y los
+ * retratos de un catálogo recargado ya están en caché cuando el jugador
+ * acepta otra partida.
+ * <p>
+ * Todos los métodos se llaman desde el hilo de eventos de Swing; el trabajo
+ * pesado lo hacen los hilos de {@link ImageCache} y de música.
+ */
+public final class GamePrewarmer {
+
+    /**
+     * Música de la pantalla de juego.
+     */
+    public static final String GAME_MUSIC = "/audio/crack.wav";
+
+    private static final GamePrewarmer INSTANCE = new GamePrewarmer();
+
+    // Ventana preparada y todavía sin jugador (solo se toca desde el hilo de eventos)
+    private GameScreen spare;
+    private boolean scheduled;
+    // Estadísticas abiertas (o abriéndose) fuera del hilo de eventos
+    private CompletableFuture<PlayerStats> stats;
+
+    /**
+     * Personaje de la siguiente ronda, sorteado del catálogo de
+     * {@code engine}.
+     *
+     * @param engine Motor con que se jugará la ronda.
+     * @param secret Índice del personaje secreto.
+     */
+    public record Round(GameEngine engine, int secret) {
+    }
+
+    private GamePrewarmer() {
+    }
+
+    public static GamePrewarmer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Empieza a preparar la ventana de juego. La construcción se encola en el
+     * hilo de eventos para que antes se pinte la pantalla actual.
+     */
+    public void prewarmWindow() {
+        MusicStreamer.getInstance().prepare(GAME_MUSIC);
+        stats();
+        if (spare != null || scheduled) {
+            return;
+        }
+        scheduled = true;
+        SwingUtilities.invokeLater(() -> {
+            scheduled = false;
+            if (spare == null) {
+                spare = new GameScreen();
+            }
+        });
+    }
+
+    /**
+     * Devuelve la ventana de juego preparada para el jugador (o la construye
+     * si todavía no estaba) y empieza su partida. La siguiente se vuelve a
+     * preparar cuando se abra otra vez la pantalla de inicio.
+     *
+     * @param playerName Nombre del jugador.
+     * @return La ventana, lista para {@code setVisible(true)}.
+     */
+    public GameScreen take(String playerName) {
+        GameScreen screen = spare;
+        spare = null;
+        if (screen == null) {
+            screen = new GameScreen();
+        }
+        screen.begin(playerName);
+        return screen;
+    }
+
+    /**
+     * Busca las estadísticas de un jugador fuera del hilo de eventos.
+     *
+     * @param playerName Nombre del jugador.
+     * @return Sus estadísticas, o {@code null} si no ha jugado nunca; se
+     * completa en otro hilo.
+     */
+    public CompletableFuture<PlayerStats.Stats> playerStats(String playerName) {
+        return stats().thenApplyAsync(s -> {
+            try {
+                return s.get(playerName);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * Suma una partida terminada a las estadísticas del jugador fuera del
+     * hilo de eventos: escribir puede crear el fichero, forzarlo a disco o
+     * duplicar la tabla entera.
+     *
+     * @param playerName Nombre del jugador.
+     * @param won Si acertó el personaje.
+     * @param questions Preguntas que hizo.
+     * @param score Puntuación final.
+     * @return Un futuro que se completa, en otro hilo, cuando está guardada.
+     */
+    public CompletableFuture<Void> recordGame(String playerName, boolean won, int questions, int score) {
+        return stats().thenAcceptAsync(s -> {
+            try {
+                s.recordGame(playerName, won, questions, score);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private CompletableFuture<PlayerStats> stats() {
+        if (stats == null) {
+            stats = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return PlayerStats.getDefault();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+        return stats;
+    }
+
+    /**
+     * Sortea el personaje de la siguiente ronda con el catálogo publicado y
+     * pide sus retratos al tamaño de celda de {@code board}.
+     *
+     * @param board Tablero en que se mostrará la ronda.
+     * @return La ronda preparada.
+     */
+    public Round prepareRound(CharacterBoard board) {
+        GameEngine engine = GameEngine.getDefault();
+        Round round = new Round(engine, AuxMethods.generateCharcter(engine.catalog()));
+        board.prefetch(engine.catalog());
+        return round;
+    }
+}
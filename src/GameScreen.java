@@ -1,18 +1,12 @@
 
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.io.IOException;
 import java.util.Arrays;
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
-import javax.swing.JLabel;
-import javax.swing.JOptionPane;
-import javax.swing.JTextField;
+import javax.swing.JMenuItem;
+import javax.swing.SwingUtilities;
 import javax.swing.plaf.basic.BasicProgressBarUI;
 
 /**
@@ -24,77 +18,67 @@ public class GameScreen extends javax.swing.JFrame {
     /**
      * Creates new form MainGame
      */
-    private final String[] selectedCharacter;
-    private int tries = 6;
-    private int score;
-    private boolean gameOver = false;
-    private int progressValue;
-    private int pressed = 0;
+    private static final System.Logger LOGGER = System.getLogger(GameScreen.class.getName());
+    // Tiempo que se ve el saludo con las estadísticas del jugador
+    private static final int WELCOME_MILLIS = 4000;
+
+    // Catálogo de la partida en curso; solo cambia al empezar otra si se ha recargado
+    private CharacterCatalog catalog;
+    private GameSession session;
+    private QuestionSolver solver;
+    // Recorrido del árbol precalculado mientras el jugador siga sus pistas (null si no hay árbol o se ha desviado)
+    private DecisionTree.Cursor treeCursor;
     private String playerName;
-    private ImageIcon icon;
 
     AuxMethods gameAudio = new AuxMethods();
+    // Evita contar dos veces la misma partida en las estadísticas
+    private boolean resultRecorded;
+    // Ronda sorteada al terminar la anterior (null si aún no se ha preparado)
+    private GamePrewarmer.Round nextRound;
+
+    /**
+     * Fase de la ronda. Decide qué controles están activos y qué se le pide
+     * al jugador en el panel de adivinanza.
+     */
+    enum RoundState {
+        // Se puede preguntar con la botonera o intentar adivinar
+        ASKING,
+        // Se han agotado las preguntas: solo queda adivinar con el panel
+        MUST_GUESS,
+        // La ronda ha terminado: el aviso ofrece otra partida o salir
+        OVER
+    }
+
+    private RoundState state;
+    // Avisos dentro de la ventana en lugar de diálogos modales
+    private NotificationOverlay notifications;
+    // Botones de pregunta, para volver a activarlos en cada ronda
+    private JButton[] questionButtons;
 
     public GameScreen(String name) {
+        this();
+        begin(name);
+    }
+
+    /**
+     * Construye la ventana con su partida pero sin jugador ni música, para
+     * que {@link GamePrewarmer} la tenga lista antes de que se pida. Se
+     * empieza a jugar con {@link #begin(String)}.
+     */
+    GameScreen() {
 
         initComponents();
-        
-        score = 2000;
-        System.out.println("el score es  *************" + getScore());
-        this.playerName = name;
-    
-        System.out.println("aqui esta el nombre::::::" + playerName);
-        jnamelabel.setText("Esta Jugando" + " " + name);
+        notifications = NotificationOverlay.install(getRootPane());
+
         jProgressBar1.setUI(new CustomProgressBarUI());
         jProgressBar1.setFont(new Font("Arial", Font.BOLD, 14));
-        jLabel14.setText("Piensa antes de preguntar tienes 6 intentos");
-        String[][] charactersList = {
-            {"kratos", "barba", "tatuaje", "hombre", "especiales", "inmortal", "heroe"},
-            {"scarlet", "sangre", "antiguas", "villano", "rostro"},
-            {"sub Cero", "especiales", "hombre", "rostro", "amigo"},
-            {"jin sakai", "hombre", "marciales", "espadas", "joven", "heroe", "amigo"},
-            {"selene", "muerto", "sangre", "modernas", "tecnologias", "inmortal", "especiales", "heroe", "amigo"},
-            {"deadpool", "hombre", "muerto", "epoca", "modernas", "tecnologias", "espadas", "inmortal", "especiales", "heroe", "amigo"},
-            {"batman", "hombre", "volar", "epoca", "modernas", "tecnologias", "heroe", "amigo", "rostro"},
-            {"dracula", "hombre", "muerto", "volar", "sangre", "latigo", "especiales", "villano", "amigo", "barba"},
-            {"wonder woman", "latigo", "especiales", "heroe"}};
 //--------------------------------------------------------------GENERAR UN NUEVO PERSONAJE-------------------------------------------------------------------------//
-        selectedCharacter = AuxMethods.generateCharcter(charactersList);
-        System.out.println("el array" + Arrays.toString(selectedCharacter));
-//---------------------------------------------------------------ASIGNACIÓN DE IMAGENES AL JLABEL------------------------------------------------------------------//
-        /*Este bucle recorre cada JLabel en el arreglo 'labels'
-        y le asigna un MouseListener está diseñado para responder a clics del mouse sobre las etiquetas (JLabel)
-        En el contexto de este programa, ' elimina el ícono (imagen) del JLabel cuando se hace clic y la habilita si se vuelve a pulsar de nuevo
-        Esto puede usarse, por ejemplo, para borrar visualmente un personaje, una pista o una imagen
+        startSession(GamePrewarmer.getInstance().prepareRound(characterBoard));
+//---------------------------------------------------------------TABLERO DE PERSONAJES----------------------------------------------------------------------------//
+        /*El tablero pinta solo las celdas visibles y carga los retratos bajo demanda desde la caché de imágenes.
+        Un clic sobre un personaje lo tacha (oculta su retrato) y otro clic lo vuelve a mostrar;
+        el estado de tachado se guarda en un bitset dentro del propio tablero; startSession le pasa el catálogo
          */
-        JLabel[] labels = {jLabel1, jLabel2, jLabel3, jLabel4, jLabel5, jLabel6, jLabel7, jLabel8, jLabel9};
-        String[] path = {"/img/kratos.jpeg", "/img/scarlet.jpeg", "/img/subcero.jpeg", "/img/jin.jpeg", "/img/selene.jpeg", "/img/deadpool.jpeg", "/img/bat.jpg", "/img/dracula.jpeg", "/img/ww.jpeg"};
-        ImageIcon[] originalIcons = new ImageIcon[labels.length];
-        for (int i = 0; i < labels.length; i++) {
-            icon = new ImageIcon(getClass().getResource(path[i]));
-            int ancho = jLabel1.getWidth();
-            int alto = jLabel1.getHeight();
-            Image scaledImg = icon.getImage().getScaledInstance(ancho, alto, Image.SCALE_SMOOTH);
-            ImageIcon scaledIcon = new ImageIcon(scaledImg);
-            labels[i].setIcon(scaledIcon);
-
-            // Guardamos la imagen original para después restaurarla
-            originalIcons[i] = scaledIcon;
-
-            // Agregamos el listener con acceso a la imagen original
-            final int index = i; // Necesario porque estamos en un loop
-            labels[i].addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    JLabel label = (JLabel) e.getSource();
-                    if (label.getIcon() != null) {
-                        label.setIcon(null); // Quita la imagen
-                    } else {
-                        label.setIcon(originalIcons[index]); // Restaura la imagen
-                    }
-                }
-            });
-        }
 //-----------------------------------------------------------------BOTONERA DE PREGUNTA---------------------------------------------------------------------------//
         /* Listener para desactivar todos los botones de pregunta
         Este bucle recorre todos los botones dentro del arreglo 'buttons'
@@ -104,75 +88,205 @@ public class GameScreen extends javax.swing.JFrame {
         IMPORTANTE: Este listener no se puede "borrar" con clic ni volver a activar desde la interfaz
         porque su acción principal es deshabilitar permanentemente el botón al hacer clic
          */
-        JButton[] buttons = {jButton2, jButton3, jButton4, jButton5, jButton6, jButton7, jButton8, jButton9, jButton10, jButton11, jButton12, jButton13, jButton14, jButton15, jButton16};
-        for (JButton button : buttons) {
+        questionButtons = new JButton[]{jButton2, jButton3, jButton4, jButton5, jButton6, jButton7, jButton8, jButton9, jButton10, jButton11, jButton12, jButton13, jButton14, jButton15, jButton16};
+        for (JButton button : questionButtons) {
             button.addActionListener(listener);
         }
-        // Segundo listener: gestión de barra de progreso, penalización, y fin del juego//
-        for (JButton bt : buttons) {
-            bt.addActionListener(e -> {
-                if (gameOver) {
-                    return;
-                }
-                // Incrementar intentos
-                pressed++;
-                // Se obtiene el valor actual de la barra de progreso
-                int actualValue = jProgressBar1.getValue();
-                // Penalización según número de intentos
-                switch (pressed) {
-                    case 1:
-                        progressValue = actualValue - 10;
-                        jLabel14.setText("Has gastado 1, quedan " + (tries - 1));
-                        break;
-                    case 2:
-                        progressValue = actualValue - 10;
-                        jLabel14.setText("Te quedan " + (tries - 2) + " intentos");
-                        break;
-                    case 3:
-                        progressValue = actualValue - 15;
-                        jLabel14.setText("Te quedan " + (tries - 3) + " intentos");
-                        break;
-                    case 4:
-                        progressValue = actualValue - 20;
-                        jLabel14.setText("Te quedan " + (tries - 4) + " intentos");
-                        break;
-                    case 5:
-                        progressValue = actualValue - 25;
-                        jLabel14.setText("Te queda 1 intento");
-                        break;
-                }
-                jProgressBar1.setValue(Math.max(0, progressValue));
-                // Cuando se alcanzan todos los intentos:
-                if (pressed == tries) {
-                    gameOver = true;
-                    JTextField textField = new JTextField();
-                    String input = "";
-                    int option = 0;
-                    while (input.isEmpty() || option != JOptionPane.OK_OPTION) {
-                        option = JOptionPane.showConfirmDialog(this, textField, "Lo siento, tienes que adivinar el personaje", JOptionPane.OK_CANCEL_OPTION);
-                        if (option == JOptionPane.OK_OPTION) {
-                            input = textField.getText().trim();
-                            if (input.isEmpty()) {
-                                JOptionPane.showMessageDialog(this, "No puede estar vacío", "Error", JOptionPane.ERROR_MESSAGE);
-                                continue;
-                            }
-                            AuxMethods.requiredGuess(GameScreen.this, textField);
-                        }
-                    }
-                    AuxMethods.newGameOption(GameScreen.this, this.playerName);
-                    //parar la musica en caso de abrir una nueva partida//
-                    gameAudio.stopAudio();
-                }
-            });
+
+//-----------------------------------------------------------------MODO PISTA---------------------------------------------------------------------------------------//
+        // Opción de menú que sugiere la pregunta que mejor divide a los personajes que quedan
+        JMenuItem hintItem = new JMenuItem("Pista");
+        hintItem.addActionListener(e -> showHint());
+        jMenu1.add(hintItem, 0);
+        setState(RoundState.ASKING);
+
+    }
+
+    /**
+     * Empieza la partida preparada para el jugador: se graba desde aquí y
+     * suena la música. Si el catálogo se ha recargado mientras la ventana
+     * esperaba se sortea otra vez con el nuevo.
+     *
+     * @param name Nombre del jugador.
+     */
+    void begin(String name) {
+        this.playerName = name;
+        jnamelabel.setText("Esta Jugando" + " " + name);
+        if (session.engine() != GameEngine.getDefault()) {
+            startSession(GamePrewarmer.getInstance().prepareRound(characterBoard));
         }
+        // Cada partida de esta ventana queda grabada para poder repetirla
+        session.record(ReplayLog.getDefault());
+        gameAudio.playMusic(GamePrewarmer.GAME_MUSIC);
+        // Si ya ha jugado antes se le saluda con sus estadísticas sin detener la partida
+        GamePrewarmer.getInstance().playerStats(name).whenComplete((stats, ex) -> {
+            if (ex != null) {
+                LOGGER.log(System.Logger.Level.WARNING, "No se pudieron leer las estadísticas", ex);
+            } else if (stats != null) {
+                SwingUtilities.invokeLater(() -> welcomeBack(name, stats));
+            }
+        });
+    }
 
-        gameAudio.playSound("/audio/crack.wav");
+    // Saludo a un jugador que vuelve, con el tiempo justo para leerlo
+    private void welcomeBack(String name, PlayerStats.Stats stats) {
+        notifications.flash(String.format(
+                "<html><center>¡Hola de nuevo, %s!<br>Partidas: %d · Aciertos: %.0f%% · "
+                + "Media de preguntas: %.1f · Mejor puntuación: %d</center></html>",
+                name.replace("&", "&amp;").replace("<", "&lt;"), stats.gamesPlayed(), stats.winRate(),
+                stats.averageQuestions(), stats.bestScore()), NotificationOverlay.Kind.INFO, WELCOME_MILLIS);
+    }
+//session getter//
 
+    public GameSession getSession() {
+        return session;
     }
-//characterArray getter//
 
-    public String[] getSelectedCharacter() {
-        return selectedCharacter;
+    /**
+     * Empieza una partida nueva en la misma ventana. En lugar de cerrar el
+     * {@code JFrame} y construir otro, se reutilizan los componentes, los
+     * listeners, las imágenes cargadas y la música, y solo se reinicia el
+     * estado: la sesión, el solucionador, el cursor del árbol, el tablero y
+     * los botones.
+     */
+    public void newRound() {
+        GamePrewarmer.Round round = nextRound;
+        nextRound = null;
+        if (round == null || round.engine() != GameEngine.getDefault()) {
+            round = GamePrewarmer.getInstance().prepareRound(characterBoard);
+        }
+        if (round.engine() == session.engine()) {
+            session.reset(round.secret());
+            logSecret();
+            solver.reset();
+            DecisionTree tree = DecisionTree.forCatalog(catalog);
+            treeCursor = tree == null ? null : tree.cursor();
+            characterBoard.clearCrossed();
+        } else {
+            // Se ha recargado el catálogo: la nueva partida ya usa el nuevo
+            session.abandon();
+            startSession(round);
+            session.record(ReplayLog.getDefault());
+        }
+        resultRecorded = false;
+
+        for (JButton button : questionButtons) {
+            button.setEnabled(true);
+        }
+        jTextField1.setText("");
+        jLabelScore.setText(session.score() + " Puntos");
+        jProgressBar1.setValue(session.progress());
+        notifications.dismiss();
+        setState(RoundState.ASKING);
+    }
+
+    /**
+     * Pasa la ronda a otra fase y ajusta los controles. Nada de esto abre
+     * diálogos: el jugador sigue pudiendo usar la ventana en todo momento.
+     *
+     * @param next Nueva fase.
+     */
+    void setState(RoundState next) {
+        state = next;
+        if (next != RoundState.ASKING) {
+            for (JButton button : questionButtons) {
+                button.setEnabled(false);
+            }
+        }
+        jTextField1.setEnabled(next != RoundState.OVER);
+        jButton1.setEnabled(next != RoundState.OVER);
+        switch (next) {
+            case ASKING ->
+                jLabel14.setText("Piensa antes de preguntar tienes 6 intentos");
+            case MUST_GUESS -> {
+                jLabel14.setText("Lo siento, tienes que adivinar el personaje");
+                jTextField1.requestFocusInWindow();
+            }
+            case OVER ->
+                jLabel14.setText("Fin de la partida");
+        }
+    }
+
+    RoundState roundState() {
+        return state;
+    }
+
+    /**
+     * Muestra un aviso breve en la ventana.
+     *
+     * @param text Texto del aviso.
+     * @param kind Tipo de aviso.
+     */
+    void notifyPlayer(String text, NotificationOverlay.Kind kind) {
+        notifications.flash(text, kind);
+    }
+
+    /**
+     * Termina la ronda: guarda el resultado y ofrece en la propia ventana
+     * jugar otra o salir.
+     *
+     * @param text Resultado que se muestra al jugador.
+     * @param won Si el jugador ha acertado.
+     */
+    void roundOver(String text, boolean won) {
+        recordResult();
+        setState(RoundState.OVER);
+        AuxMethods.newGameOption(this, text, won);
+    }
+
+    /**
+     * Muestra en la ventana la pregunta de si se juega otra partida.
+     *
+     * @param text Texto del aviso.
+     * @param kind Tipo de aviso.
+     * @param choices Botones del aviso.
+     */
+    void promptPlayer(String text, NotificationOverlay.Kind kind, NotificationOverlay.Action... choices) {
+        notifications.prompt(text, kind, choices);
+    }
+
+    // Empieza una partida con el catálogo de la ronda y prepara el solucionador, el árbol y el tablero
+    private void startSession(GamePrewarmer.Round round) {
+        GameEngine engine = round.engine();
+        catalog = engine.catalog();
+        session = engine.newSession(round.secret());
+        logSecret();
+        solver = QuestionSolver.forGame(engine);
+        DecisionTree tree = DecisionTree.forCatalog(catalog);
+        treeCursor = tree == null ? null : tree.cursor();
+        characterBoard.setCatalog(catalog);
+    }
+
+    // El personaje secreto solo se muestra con el registro en nivel DEBUG
+    private void logSecret() {
+        if (LOGGER.isLoggable(System.Logger.Level.DEBUG)) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Personaje secreto: " + session.secretName()
+                    + Arrays.toString(catalog.attributesOf(session.secret())));
+        }
+    }
+
+    /**
+     * Guarda en las estadísticas del jugador el resultado de la partida, una
+     * sola vez y solo cuando ha terminado.
+     */
+    void recordResult() {
+        if (!session.isOver() || resultRecorded) {
+            return;
+        }
+        resultRecorded = true;
+        // Mientras el jugador lee el resultado se sortea la siguiente ronda y se piden sus retratos
+        nextRound = GamePrewarmer.getInstance().prepareRound(characterBoard);
+        Metrics.gameFinished(session.isWon(), session.questionsAsked());
+        GamePrewarmer.getInstance()
+                .recordGame(playerName, session.isWon(), session.questionsAsked(), session.score())
+                .exceptionally(ex -> {
+                    System.getLogger(GameScreen.class.getName()).log(System.Logger.Level.WARNING, "No se pudieron guardar las estadísticas", ex);
+                    return null;
+                });
+    }
+
+    public String getSelectedCharacterName() {
+        return session.secretName();
     }
 
     public void setLabelName(String name) {
@@ -180,17 +294,13 @@ public class GameScreen extends javax.swing.JFrame {
     }
 
     public int getScore() {
-        return this.score;
+        return session.score();
     }
 
     public String getPlayerName() {
         return playerName;
     }
 
-    public void setScore(int score) {
-        this.score = score;
-    }
-
     //he sobreescrito la clase BasicProgressBarUI para poder cambiar el color del texto de porcentaje y se muestra siempre en negro//
     public class CustomProgressBarUI extends BasicProgressBarUI {
 
@@ -214,34 +324,83 @@ public class GameScreen extends javax.swing.JFrame {
 
 //************************************************************All listeners*************************************************************************************//
 
-    /*listener para decrementar score cuando un boton este desactivado tambien para comprobar el nombre de la caracteristica del personaje
-            de tal manera que cada vez que se pulsa sale el nombre correspondiente de la caracteristica y lo compara con el array del personaje*/
+    /*listener de la botonera de preguntas: desactiva el botón, pregunta a la sesión por la característica
+            cuyo nombre es el del botón, actualiza score y barra de progreso y, al agotar los intentos, obliga a adivinar*/
     ActionListener listener = (ActionEvent evt) -> {
-        scoreDecrement(evt);
         ((JButton) evt.getSource()).setEnabled(false);
+        if (state != RoundState.ASKING) {
+            return;
+        }
         String getButtonName = ((JButton) evt.getSource()).getName();
 
-        String[] callSelectedCaharacterArray = this.getSelectedCharacter();
-        System.out.println("name:::::::::" + getButtonName);
-        if (Arrays.asList(callSelectedCaharacterArray).contains(getButtonName)) {
-
-            System.out.println("si");
-            if (gameOver) {
-                return;
+        boolean answer = session.ask(getButtonName);
+        Metrics.QUESTIONS.increment();
+        int attribute = catalog.attributeId(getButtonName);
+        solver.answer(attribute, answer);
+        if (treeCursor != null) {
+            if (treeCursor.question() == attribute) {
+                treeCursor.answer(answer);
+            } else {
+                treeCursor = null;
             }
-            JOptionPane.showMessageDialog(this, "¡Correcto! ");
-
+        }
+        scoreDecrement(evt);
+        if (session.isOver()) {
+            // Sin puntos la partida ha terminado: se ofrece otra ronda o salir
+            roundOver("Te has quedado sin puntos. El personaje era " + session.secretName(), false);
+            return;
+        }
+        updateProgress();
+        // El aviso no bloquea: el jugador puede pulsar la siguiente pregunta en el acto
+        if (answer) {
+            notifications.flash("¡Correcto!", NotificationOverlay.Kind.SUCCESS);
         } else {
-            System.out.println("no");
-
-            if (gameOver) {
-                return;
-            }
-            JOptionPane.showMessageDialog(this, "Lamento decirte que NO");
+            notifications.flash("Lamento decirte que NO", NotificationOverlay.Kind.ERROR);
+        }
 
+        // Cuando se alcanzan todos los intentos solo queda adivinar con el panel de la ventana
+        if (session.mustGuess()) {
+            setState(RoundState.MUST_GUESS);
         }
     };
 
+    // Muestra la pregunta con mayor ganancia de información según las respuestas obtenidas//
+    private void showHint() {
+        if (state != RoundState.ASKING) {
+            return;
+        }
+        // Mientras el jugador siga el árbol basta con leer el nodo actual; si no, se calcula al vuelo
+        int question = treeCursor != null && treeCursor.question() >= 0 ? treeCursor.question() : solver.bestQuestion();
+        if (solver.candidateCount() == 1) {
+            notifications.flash("Ya solo queda un personaje posible, ¡adivina!", NotificationOverlay.Kind.INFO);
+        } else if (question < 0) {
+            notifications.flash("Ninguna pregunta te ayuda ya, prueba a adivinar", NotificationOverlay.Kind.INFO);
+        } else {
+            notifications.flash("Pista: pregunta por \"" + catalog.attributeName(question) + "\" ("
+                    + solver.candidateCount() + " personajes posibles)", NotificationOverlay.Kind.INFO);
+        }
+    }
+
+    // Gestión de barra de progreso y mensaje de intentos restantes según la penalización de la sesión//
+    private void updateProgress() {
+        int pressed = session.questionsAsked();
+        int remaining = session.remainingQuestions();
+        switch (pressed) {
+            case 1:
+                jLabel14.setText("Has gastado 1, quedan " + remaining);
+                break;
+            case 2:
+            case 3:
+            case 4:
+                jLabel14.setText("Te quedan " + remaining + " intentos");
+                break;
+            case 5:
+                jLabel14.setText("Te queda 1 intento");
+                break;
+        }
+        jProgressBar1.setValue(session.progress());
+    }
+
 //************************************************************************************************************************************************************************//
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
@@ -252,15 +411,8 @@ public class GameScreen extends javax.swing.JFrame {
         jMenuItem2 = new javax.swing.JMenuItem();
         jPanel2 = new javax.swing.JPanel();
         jPersonaje = new javax.swing.JPanel();
-        jLabel1 = new javax.swing.JLabel();
-        jLabel2 = new javax.swing.JLabel();
-        jLabel3 = new javax.swing.JLabel();
-        jLabel4 = new javax.swing.JLabel();
-        jLabel5 = new javax.swing.JLabel();
-        jLabel6 = new javax.swing.JLabel();
-        jLabel7 = new javax.swing.JLabel();
-        jLabel8 = new javax.swing.JLabel();
-        jLabel9 = new javax.swing.JLabel();
+        jScrollPane1 = new javax.swing.JScrollPane();
+        characterBoard = new CharacterBoard();
         jpreguntas = new javax.swing.JPanel();
         jButton2 = new javax.swing.JButton();
         jButton3 = new javax.swing.JButton();
@@ -315,116 +467,13 @@ public class GameScreen extends javax.swing.JFrame {
         jPanel2.setBorder(javax.swing.BorderFactory.createTitledBorder(""));
 
         jPersonaje.setBorder(new javax.swing.border.SoftBevelBorder(javax.swing.border.BevelBorder.RAISED));
-        jPersonaje.setLayout(new java.awt.GridLayout(3, 3, 12, 3));
-
-        jLabel1.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel1.setText("1");
-        jLabel1.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel1.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel1.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel1.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel1MouseClicked(evt);
-            }
-            public void mouseEntered(java.awt.event.MouseEvent evt) {
-                jLabel1MouseEntered(evt);
-            }
-        });
-        jPersonaje.add(jLabel1);
-
-        jLabel2.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel2.setText("2");
-        jLabel2.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel2.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel2.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel2.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel2MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel2);
-
-        jLabel3.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel3.setText("3");
-        jLabel3.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel3.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel3.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel3.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel3MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel3);
-
-        jLabel4.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel4.setText("4");
-        jLabel4.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel4.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel4.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel4.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel4MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel4);
-
-        jLabel5.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel5.setText("5");
-        jLabel5.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel5.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel5.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel5.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel5MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel5);
+        jPersonaje.setLayout(new java.awt.BorderLayout());
 
-        jLabel6.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel6.setText("6");
-        jLabel6.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel6.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel6.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel6MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel6);
-
-        jLabel7.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel7.setText("7");
-        jLabel7.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel7.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel7.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel7.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel7MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel7);
+        jScrollPane1.setBorder(null);
+        jScrollPane1.setHorizontalScrollBarPolicy(javax.swing.ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        jScrollPane1.setViewportView(characterBoard);
 
-        jLabel8.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel8.setText("8");
-        jLabel8.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel8.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel8.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel8MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel8);
-
-        jLabel9.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
-        jLabel9.setText("9");
-        jLabel9.setBorder(javax.swing.BorderFactory.createEtchedBorder());
-        jLabel9.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
-        jLabel9.setPreferredSize(new java.awt.Dimension(80, 80));
-        jLabel9.addMouseListener(new java.awt.event.MouseAdapter() {
-            public void mouseClicked(java.awt.event.MouseEvent evt) {
-                jLabel9MouseClicked(evt);
-            }
-        });
-        jPersonaje.add(jLabel9);
+        jPersonaje.add(jScrollPane1, java.awt.BorderLayout.CENTER);
 
         jpreguntas.setBorder(javax.swing.BorderFactory.createEtchedBorder());
         jpreguntas.setPreferredSize(new java.awt.Dimension(75, 50));
@@ -823,20 +872,8 @@ public class GameScreen extends javax.swing.JFrame {
 
     public void scoreDecrement(java.awt.event.ActionEvent evt) {
 
-        // Solo decrementamos si el score todavía es mayor que cero
-        if (score > 0) {
-
-            // Resta 100 puntos al score actual
-            score = score - 100;
-
-            // Actualiza el texto de la etiqueta que muestra los puntos del jugador
-            jLabelScore.setText(score + " Puntos ");
-            setScore(score);
-            // Si los puntos han llegado a 0, se cierra la ventana del juego (fin del juego)
-            if (score == 0) {
-                dispose(); // Cierra la ventana actual (termina el juego visualmente)
-            }
-        }
+        // La sesión ya ha restado los puntos de la pregunta; aquí solo se refleja en la interfaz
+        jLabelScore.setText(session.score() + " Puntos ");
     }
 
     public void characterButtonActionPerformed(java.awt.event.ActionEvent evt) {
@@ -845,18 +882,9 @@ public class GameScreen extends javax.swing.JFrame {
 
 
     private void jMenuItem1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem1ActionPerformed
-        gameOver = true;
         System.exit(0);
     }//GEN-LAST:event_jMenuItem1ActionPerformed
 
-    private void jLabel1MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel1MouseClicked
-
-    }//GEN-LAST:event_jLabel1MouseClicked
-
-    private void jLabel1MouseEntered(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel1MouseEntered
-
-    }//GEN-LAST:event_jLabel1MouseEntered
-
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
 
 
@@ -870,10 +898,6 @@ public class GameScreen extends javax.swing.JFrame {
 
     }//GEN-LAST:event_jButton8MouseClicked
 
-    private void jLabel2MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel2MouseClicked
-
-    }//GEN-LAST:event_jLabel2MouseClicked
-
     private void jButton3MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jButton3MouseClicked
 
     }//GEN-LAST:event_jButton3MouseClicked
@@ -891,42 +915,12 @@ public class GameScreen extends javax.swing.JFrame {
 
     }//GEN-LAST:event_jButton6MouseClicked
 
-    private void jLabel3MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel3MouseClicked
-
-    }//GEN-LAST:event_jLabel3MouseClicked
-
-    private void jLabel4MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel4MouseClicked
-
-    }//GEN-LAST:event_jLabel4MouseClicked
-
-    private void jLabel5MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel5MouseClicked
-
-    }//GEN-LAST:event_jLabel5MouseClicked
-
-    private void jLabel6MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel6MouseClicked
-
-    }//GEN-LAST:event_jLabel6MouseClicked
-
-    private void jLabel7MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel7MouseClicked
-
-    }//GEN-LAST:event_jLabel7MouseClicked
-
-    private void jLabel8MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel8MouseClicked
-
-    }//GEN-LAST:event_jLabel8MouseClicked
-
-    private void jLabel9MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jLabel9MouseClicked
-
-    }//GEN-LAST:event_jLabel9MouseClicked
-
     private void jMenuItem3MouseClicked(java.awt.event.MouseEvent evt) {//GEN-FIRST:event_jMenuItem3MouseClicked
 
     }//GEN-LAST:event_jMenuItem3MouseClicked
 
     private void jMenuItem3ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem3ActionPerformed
-        this.dispose();
-        gameAudio.stopAudio();
-        new GameScreen(this.playerName).setVisible(true);
+        newRound();
     }//GEN-LAST:event_jMenuItem3ActionPerformed
 
     private void jButton5ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton5ActionPerformed
@@ -967,10 +961,13 @@ public class GameScreen extends javax.swing.JFrame {
     }//GEN-LAST:event_jButton1ActionPerformed
 
     private void jTextField1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jTextField1ActionPerformed
-        // TODO add your handling code here:
+        // Enter en el panel de adivinanza equivale a pulsar "Adivinar"
+        AuxMethods.guessButton(GameScreen.this, jTextField1, this.playerName);
     }//GEN-LAST:event_jTextField1ActionPerformed
 
     private void jMenuItem4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem4ActionPerformed
+        // Volver al menú deja la partida a medias
+        session.abandon();
         this.dispose();
         gameAudio.stopAudio();
         IntroScreen newGame = new IntroScreen();
@@ -990,6 +987,7 @@ public class GameScreen extends javax.swing.JFrame {
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.ButtonGroup buttonGroup1;
     private javax.swing.ButtonGroup buttonGroup2;
+    private CharacterBoard characterBoard;
     private javax.swing.JButton jButton1;
     private javax.swing.JButton jButton10;
     private javax.swing.JButton jButton11;
@@ -1007,19 +1005,10 @@ public class GameScreen extends javax.swing.JFrame {
     private javax.swing.JButton jButton8;
     private javax.swing.JButton jButton9;
     private javax.swing.JDialog jDialog1;
-    private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel10;
     private javax.swing.JLabel jLabel11;
     private javax.swing.JLabel jLabel12;
     private javax.swing.JLabel jLabel14;
-    private javax.swing.JLabel jLabel2;
-    private javax.swing.JLabel jLabel3;
-    private javax.swing.JLabel jLabel4;
-    private javax.swing.JLabel jLabel5;
-    private javax.swing.JLabel jLabel6;
-    private javax.swing.JLabel jLabel7;
-    private javax.swing.JLabel jLabel8;
-    private javax.swing.JLabel jLabel9;
     private javax.swing.JLabel jLabelScore;
     private javax.swing.JMenu jMenu1;
     private javax.swing.JMenuBar jMenuBar2;
@@ -1034,6 +1023,7 @@ public class GameScreen extends javax.swing.JFrame {
     private javax.swing.JPanel jPanel5;
     private javax.swing.JPanel jPersonaje;
     private javax.swing.JProgressBar jProgressBar1;
+    private javax.swing.JScrollPane jScrollPane1;
     private javax.swing.JTextField jTextField1;
     private javax.swing.JLabel jnamelabel;
     private javax.swing.JPanel jpreguntas;
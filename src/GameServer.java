@@ -0,0 +1,443 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Servidor del juego sin interfaz. Cada conexión se atiende en un hilo virtual
+ * y puede jugar varias partidas a la vez; las {@link GameSession}s viven en un
+ * registro {@link ConcurrentHashMap} indexado por un identificador numérico.
+ * Las operaciones sobre una sesión se hacen dentro de
+ * {@link ConcurrentHashMap#compute}, que bloquea solo el cubo de esa sesión,
+ * así que dos jugadores nunca compiten por un cerrojo global.
+ * <p>
+ * Protocolo de texto, una orden por línea (UTF-8) y una respuesta por línea:
+ * <pre>
+ * NEW                    → OK &lt;id&gt;
+ * QUESTIONS              → OK &lt;pregunta&gt; &lt;pregunta&gt; ...
+ * ASK &lt;id&gt; &lt;pregunta&gt;     → YES|NO &lt;puntos&gt; &lt;preguntasRestantes&gt; [OVER &lt;personaje&gt;]
+ * GUESS &lt;id&gt; &lt;nombre&gt;     → WIN &lt;puntos&gt; | WRONG | LOSE &lt;personaje&gt;
+ * STATE &lt;id&gt;             → STATE &lt;puntos&gt; &lt;preguntasRestantes&gt; &lt;progreso&gt; PLAYING|GUESS|WON|LOST
+ * END &lt;id&gt;               → OK
+ * QUIT                   → BYE
+ * </pre>
+ * Modo a dos jugadores ({@link HeadToHead}), emparejados por el
+ * {@link Matchmaker}:
+ * <pre>
+ * MATCH [ms]             → MATCHED &lt;partida&gt; &lt;asiento&gt; | TIMEOUT
+ * MASK &lt;partida&gt; &lt;pregunta&gt; → YES|NO &lt;preguntasRestantes&gt;
+ * MGUESS &lt;partida&gt; &lt;nombre&gt;  → WIN | WRONG | LOSE &lt;personaje&gt;
+ * MWAIT &lt;partida&gt; [ms]    → TURN &lt;jugada&gt; | OVER WON|LOST &lt;jugada&gt; | WAIT
+ * MLEAVE &lt;partida&gt;        → OK
+ * </pre>
+ * Empieza el asiento 0; {@code MWAIT} bloquea hasta que le toca al jugador.
+ * En cuanto el jugador ve el final de la partida ({@code WIN}, {@code LOSE}
+ * u {@code OVER}) el servidor la olvida y sus órdenes posteriores responden
+ * {@code ERR}.
+ * Las preguntas que anuncia {@code QUESTIONS} son las de la botonera; si
+ * ningún personaje del catálogo tiene una, la respuesta es NO, igual que en
+ * la interfaz.
+ * Cualquier error se responde con {@code ERR <motivo>}. Al cerrarse la
+ * conexión se eliminan las partidas que había creado y se abandonan las de
+ * dos jugadores.
+ */
+public final class GameServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7777;
+    // Límite de partidas abiertas en todo el servidor
+    static final int MAX_SESSIONS = 200_000;
+    // Jugadores esperando rival a partir de los cuales MATCH se rechaza
+    static final int MAX_WAITING = 10_000;
+    static final long MATCH_TIMEOUT_MILLIS = 30_000;
+    static final long TURN_TIMEOUT_MILLIS = 60_000;
+
+    private static final System.Logger LOGGER = System.getLogger(GameServer.class.getName());
+
+    private final Supplier<GameEngine> engines;
+    private final ServerSocket serverSocket;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Matchmaker matchmaker;
+    // Grabación de las partidas individuales (null si no se graban)
+    private volatile ReplayLog replayLog;
+
+    // Estado de una conexión: sus partidas y sus asientos en partidas a dos
+    private static final class Connection {
+
+        final Set<Long> sessions = new HashSet<>();
+        final Map<Long, Matchmaker.Seat> seats = new HashMap<>();
+    }
+
+    /**
+     * Abre el servidor en {@code localhost}.
+     *
+     * @param engine Motor con las reglas y el catálogo.
+     * @param port Puerto TCP (0 para uno libre).
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public GameServer(GameEngine engine, int port) throws IOException {
+        this(() -> engine, port);
+    }
+
+    /**
+     * Abre el servidor en {@code localhost}. Cada partida nueva toma el motor
+     * que devuelva {@code engines} en ese momento y lo conserva hasta el
+     * final.
+     *
+     * @param engines Motor con las reglas y el catálogo (por ejemplo
+     * {@code GameEngine::getDefault}, para seguir las recargas del catálogo).
+     * @param port Puerto TCP (0 para uno libre).
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public GameServer(Supplier<GameEngine> engines, int port) throws IOException {
+        this.engines = engines;
+        this.matchmaker = new Matchmaker(engines, MAX_WAITING);
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    public Matchmaker matchmaker() {
+        return matchmaker;
+    }
+
+    /**
+     * Graba las partidas individuales ({@code NEW}) que se creen a partir de
+     * ahora.
+     *
+     * @param log Grabación de destino, o {@code null} para no grabar.
+     * @return Este servidor.
+     */
+    public GameServer recordTo(ReplayLog log) {
+        replayLog = log;
+        return this;
+    }
+
+    /**
+     * Empieza a aceptar conexiones en un hilo virtual y vuelve de inmediato.
+     *
+     * @return Este servidor.
+     */
+    public GameServer start() {
+        threads.execute(this::run);
+        return this;
+    }
+
+    /**
+     * Acepta conexiones en el hilo actual hasta que se cierra el servidor.
+     */
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                threads.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Error aceptando conexión", ex);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        connections.incrementAndGet();
+        try {
+            // Respuestas cortas de una línea: sin esperar a juntar más datos
+            socket.setTcpNoDelay(true);
+        } catch (IOException ex) {
+            LOGGER.log(System.Logger.Level.DEBUG, "No se pudo desactivar Nagle", ex);
+        }
+        // Partidas creadas por esta conexión, para liberarlas al desconectarse
+        Connection owned = new Connection();
+        try (socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line.trim(), owned);
+                out.write(reply);
+                out.newLine();
+                // Solo se vacía cuando no quedan órdenes pendientes: los clientes que encadenan órdenes comparten escrituras
+                if (!in.ready()) {
+                    out.flush();
+                }
+                if (reply.equals("BYE")) {
+                    break;
+                }
+            }
+            out.flush();
+        } catch (IOException ex) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Conexión cerrada", ex);
+        } finally {
+            for (Long id : owned.sessions) {
+                discard(id);
+            }
+            for (Matchmaker.Seat seat : owned.seats.values()) {
+                seat.match().forfeit(seat.seat());
+            }
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Ejecuta una orden del protocolo.
+     *
+     * @param line Línea recibida.
+     * @param owned Estado de la conexión (se añaden las partidas que se
+     * crean).
+     * @return La respuesta, sin salto de línea.
+     */
+    private String handle(String line, Connection owned) {
+        String[] parts = line.split(" ", 3);
+        try {
+            switch (parts[0].toUpperCase()) {
+                case "NEW" -> {
+                    if (sessions.size() >= MAX_SESSIONS) {
+                        return "ERR servidor lleno";
+                    }
+                    long id = nextId.incrementAndGet();
+                    GameSession session = engines.get().newSession();
+                    session.record(replayLog);
+                    sessions.put(id, session);
+                    owned.sessions.add(id);
+                    return "OK " + id;
+                }
+                case "QUESTIONS" -> {
+                    return "OK " + String.join(" ", GameEngine.QUESTIONS);
+                }
+                case "ASK" -> {
+                    String question = argument(parts, 2);
+                    return apply(parts, session -> {
+                        // Con el catálogo de la partida, que puede no ser ya el publicado
+                        int attribute = session.engine().catalog().attributeId(question);
+                        // Una pregunta de la botonera que nadie tiene se responde NO, como en la interfaz
+                        if (attribute < 0 && !GameEngine.isQuestion(question)) {
+                            return "ERR pregunta desconocida";
+                        }
+                        boolean answer = session.ask(attribute);
+                        Metrics.QUESTIONS.increment();
+                        if (session.isOver()) {
+                            Metrics.gameFinished(false, session.questionsAsked());
+                        }
+                        return (answer ? "YES " : "NO ") + session.score() + " " + session.remainingQuestions()
+                                + (session.isOver() ? " OVER " + session.secretName() : "");
+                    });
+                }
+                case "GUESS" -> {
+                    String name = argument(parts, 2);
+                    return apply(parts, session -> {
+                        int character = session.engine().catalog().indexOf(name);
+                        long start = Metrics.start();
+                        boolean right = session.guess(character);
+                        Metrics.guessed(right, start);
+                        if (session.isOver()) {
+                            Metrics.gameFinished(right, session.questionsAsked());
+                        }
+                        if (right) {
+                            return "WIN " + session.score();
+                        }
+                        return session.isOver() ? "LOSE " + session.secretName() : "WRONG";
+                    });
+                }
+                case "STATE" -> {
+                    return apply(parts, session -> "STATE " + session.score() + " " + session.remainingQuestions()
+                            + " " + session.progress() + " " + status(session));
+                }
+                case "END" -> {
+                    long id = id(parts);
+                    discard(id);
+                    owned.sessions.remove(id);
+                    return "OK";
+                }
+                case "MATCH" -> {
+                    long timeout = millis(parts, 1, MATCH_TIMEOUT_MILLIS);
+                    Matchmaker.Seat seat = matchmaker.join(timeout);
+                    if (seat == null) {
+                        return "TIMEOUT";
+                    }
+                    owned.seats.put(seat.match().id(), seat);
+                    return "MATCHED " + seat.match().id() + " " + seat.seat();
+                }
+                case "MASK" -> {
+                    Matchmaker.Seat seat = seat(parts, owned);
+                    String question = argument(parts, 2);
+                    if (seat.match().engine().catalog().attributeId(question) < 0 && !GameEngine.isQuestion(question)) {
+                        return "ERR pregunta desconocida";
+                    }
+                    boolean answer = seat.match().ask(seat.seat(), question);
+                    return (answer ? "YES " : "NO ") + seat.match().remainingQuestions(seat.seat());
+                }
+                case "MGUESS" -> {
+                    Matchmaker.Seat seat = seat(parts, owned);
+                    HeadToHead match = seat.match();
+                    boolean won = match.guess(seat.seat(), match.engine().catalog().indexOf(argument(parts, 2)));
+                    if (match.isOver()) {
+                        owned.seats.remove(match.id());
+                    }
+                    if (won) {
+                        return "WIN";
+                    }
+                    return match.isOver() ? "LOSE " + match.secretName(1 - seat.seat()) : "WRONG";
+                }
+                case "MWAIT" -> {
+                    Matchmaker.Seat seat = seat(parts, owned);
+                    long timeout = millis(parts, 2, TURN_TIMEOUT_MILLIS);
+                    String move = seat.match().awaitTurn(seat.seat(), timeout);
+                    if (move == null) {
+                        return "WAIT";
+                    }
+                    if (seat.match().isOver()) {
+                        owned.seats.remove(seat.match().id());
+                        return "OVER " + (seat.match().winner() == seat.seat() ? "WON " : "LOST ") + move;
+                    }
+                    return "TURN " + move;
+                }
+                case "MLEAVE" -> {
+                    Matchmaker.Seat seat = seat(parts, owned);
+                    seat.match().forfeit(seat.seat());
+                    owned.seats.remove(seat.match().id());
+                    return "OK";
+                }
+                case "QUIT" -> {
+                    return "BYE";
+                }
+                default -> {
+                    return "ERR orden desconocida";
+                }
+            }
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return "ERR " + ex.getMessage();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return "ERR servidor detenido";
+        }
+    }
+
+    // Quita la partida del registro; si no había terminado queda grabada como abandonada
+    private void discard(long id) {
+        GameSession session = sessions.remove(id);
+        if (session != null) {
+            session.abandon();
+        }
+    }
+
+    private static Matchmaker.Seat seat(String[] parts, Connection owned) {
+        long id = id(parts);
+        Matchmaker.Seat seat = owned.seats.get(id);
+        if (seat == null) {
+            throw new IllegalArgumentException("partida a dos desconocida " + id);
+        }
+        return seat;
+    }
+
+    private interface Action {
+
+        String run(GameSession session);
+    }
+
+    // La acción se ejecuta con el cubo de la sesión bloqueado: nunca dos órdenes a la vez sobre la misma partida
+    private String apply(String[] parts, Action action) {
+        long id = id(parts);
+        String[] reply = new String[1];
+        GameSession found = sessions.computeIfPresent(id, (key, session) -> {
+            reply[0] = action.run(session);
+            return session;
+        });
+        if (found == null) {
+            return "ERR partida desconocida " + id;
+        }
+        return reply[0];
+    }
+
+    private static String status(GameSession session) {
+        if (session.isOver()) {
+            return session.isWon() ? "WON" : "LOST";
+        }
+        return session.mustGuess() ? "GUESS" : "PLAYING";
+    }
+
+    private static long id(String[] parts) {
+        try {
+            return Long.parseLong(argument(parts, 1));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("identificador no válido");
+        }
+    }
+
+    // Tiempo de espera opcional en milisegundos
+    private static long millis(String[] parts, int index, long otherwise) {
+        if (parts.length <= index || parts[index].isBlank()) {
+            return otherwise;
+        }
+        try {
+            return Long.parseLong(parts[index].trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("tiempo de espera no válido");
+        }
+    }
+
+    private static String argument(String[] parts, int index) {
+        if (parts.length <= index || parts[index].isBlank()) {
+            throw new IllegalArgumentException("faltan argumentos");
+        }
+        return parts[index].trim();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        threads.shutdownNow();
+    }
+
+    /**
+     * Arranca el servidor: {@code java GameServer [puerto]}. Con
+     * {@code -Dwiw.replay=true} graba las partidas en
+     * {@link ReplayLog#DEFAULT_DIRECTORY}. Los cambios en el catálogo se
+     * recargan sin reiniciar ({@link CatalogReloader}).
+     *
+     * @param args Puerto opcional.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(GameEngine::getDefault, port);
+        CatalogReloader.start();
+        if (Boolean.getBoolean("wiw.replay")) {
+            server.recordTo(ReplayLog.getDefault());
+        }
+        System.out.println("Servidor de Who-is-Who escuchando en localhost:" + server.port());
+        // Los hilos virtuales no mantienen viva la JVM: el hilo principal acepta las conexiones
+        server.run();
+    }
+}
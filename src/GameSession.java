@@ -0,0 +1,221 @@
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Estado de una partida: personaje secreto, puntuación, preguntas hechas y
+ * barra de progreso. No usa AWT ni Swing, por lo que se puede jugar desde la
+ * interfaz, desde un bot o en un servidor sin pantalla. No es segura para
+ * hilos: cada sesión la juega un único hilo a la vez.
+ */
+public final class GameSession {
+
+    private final GameEngine engine;
+    private int secret;
+    private int score;
+    private int questionsAsked;
+    private int progress;
+    private boolean over;
+    private boolean won;
+    // Grabación de la partida (null si no se graba)
+    private ReplayLog log;
+    private long game;
+    private long started;
+
+    GameSession(GameEngine engine, int secret) {
+        this.engine = engine;
+        reset(secret);
+    }
+
+    /**
+     * Reinicia la sesión con un nuevo personaje secreto sin crear objetos.
+     *
+     * @param secret Índice del personaje secreto en el catálogo.
+     */
+    public void reset(int secret) {
+        if (secret < 0 || secret >= engine.catalog().size()) {
+            throw new IllegalArgumentException("Personaje fuera del catálogo: " + secret);
+        }
+        if (log != null && !over) {
+            // La partida grabada se deja a medias: el reproductor tiene que saber que ya no sigue
+            recordAbandoned();
+        }
+        this.secret = secret;
+        this.score = GameEngine.INITIAL_SCORE;
+        this.questionsAsked = 0;
+        this.progress = GameEngine.INITIAL_PROGRESS;
+        this.over = false;
+        this.won = false;
+        if (log != null) {
+            startRecording();
+        }
+    }
+
+    /**
+     * Graba esta partida y las siguientes ({@link #reset}) en {@code log}.
+     *
+     * @param log Grabación de destino, o {@code null} para dejar de grabar.
+     */
+    public void record(ReplayLog log) {
+        if (log != null && (questionsAsked > 0 || over)) {
+            throw new IllegalStateException("Solo se puede empezar a grabar al principio de una partida");
+        }
+        if (this.log != null && !over) {
+            recordAbandoned();
+        }
+        this.log = log;
+        if (log != null) {
+            startRecording();
+        }
+    }
+
+    /**
+     * Deja la partida sin terminar, por ejemplo porque el jugador empieza
+     * otra o se desconecta. Si se está grabando queda constancia de que se
+     * abandonó, para que el reproductor no la espere hasta el final del
+     * fichero. Después de abandonarla no se puede seguir jugando.
+     */
+    public void abandon() {
+        if (over) {
+            return;
+        }
+        if (log != null) {
+            recordAbandoned();
+        }
+        over = true;
+    }
+
+    private void recordAbandoned() {
+        log.event(ReplayLog.ABANDONED, game, System.currentTimeMillis() - started, score);
+    }
+
+    private void startRecording() {
+        game = log.newGame();
+        started = System.currentTimeMillis();
+        log.start(game, started, engine.catalog().fingerprint(), secret);
+    }
+
+    private void recordEvent(byte type, int value) {
+        long elapsed = System.currentTimeMillis() - started;
+        log.event(type, game, elapsed, value);
+        if (over) {
+            log.event(won ? ReplayLog.END_WON : ReplayLog.END_LOST, game, elapsed, score);
+        }
+    }
+
+    /**
+     * Pregunta si el personaje secreto tiene una característica.
+     *
+     * @param attribute Nombre de la característica (nombre del botón).
+     * @return {@code true} si el personaje la tiene.
+     */
+    public boolean ask(String attribute) {
+        return ask(engine.catalog().attributeId(attribute));
+    }
+
+    /**
+     * Pregunta por una característica usando su identificador en el catálogo.
+     * Cada pregunta resta puntos y avanza la penalización de la barra de
+     * progreso. Al llegar a {@link GameEngine#MAX_QUESTIONS} el jugador está
+     * obligado a adivinar.
+     *
+     * @param attribute Identificador de la característica (-1 si no existe).
+     * @return {@code true} si el personaje la tiene.
+     */
+    public boolean ask(int attribute) {
+        if (over || mustGuess()) {
+            throw new IllegalStateException("No se pueden hacer más preguntas en esta partida");
+        }
+        questionsAsked++;
+        progress = Math.max(0, progress - engine.progressPenalty(questionsAsked));
+        if (score > 0) {
+            score -= GameEngine.QUESTION_COST;
+            if (score <= 0) {
+                score = 0;
+                over = true;
+            }
+        }
+        boolean answer = engine.catalog().hasAttribute(secret, attribute);
+        if (log != null) {
+            recordEvent(answer ? ReplayLog.ASK_YES : ReplayLog.ASK_NO, attribute + 1);
+        }
+        return answer;
+    }
+
+    /**
+     * Intenta adivinar el personaje por su nombre, sin distinguir mayúsculas.
+     * Un fallo normal no tiene penalización, pero si se han agotado las
+     * preguntas la partida termina igualmente.
+     *
+     * @param name Nombre propuesto por el jugador.
+     * @return {@code true} si se ha acertado.
+     */
+    public boolean guess(String name) {
+        return guess(engine.catalog().indexOf(name));
+    }
+
+    /**
+     * Intenta adivinar el personaje por su índice en el catálogo.
+     *
+     * @param character Índice propuesto (-1 si el nombre no existe).
+     * @return {@code true} si se ha acertado.
+     */
+    public boolean guess(int character) {
+        if (over) {
+            throw new IllegalStateException("La partida ya ha terminado");
+        }
+        boolean correct = character == secret;
+        if (correct || mustGuess()) {
+            over = true;
+            won = correct;
+        }
+        if (log != null) {
+            recordEvent(correct ? ReplayLog.GUESS_RIGHT : ReplayLog.GUESS_WRONG, character + 1);
+        }
+        return correct;
+    }
+
+    public GameEngine engine() {
+        return engine;
+    }
+
+    public int secret() {
+        return secret;
+    }
+
+    public String secretName() {
+        return engine.catalog().name(secret);
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int progress() {
+        return progress;
+    }
+
+    public int questionsAsked() {
+        return questionsAsked;
+    }
+
+    public int remainingQuestions() {
+        return GameEngine.MAX_QUESTIONS - questionsAsked;
+    }
+
+    /**
+     * @return {@code true} si se han agotado las preguntas y solo queda
+     * adivinar.
+     */
+    public boolean mustGuess() {
+        return !over && questionsAsked >= GameEngine.MAX_QUESTIONS;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+}
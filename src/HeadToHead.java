@@ -0,0 +1,225 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Partida a dos jugadores. Cada uno tiene su propio personaje secreto y por
+ * turnos preguntan por el del rival o intentan adivinarlo. Un fallo al
+ * adivinar pasa el turno, salvo que el jugador ya haya agotado sus
+ * preguntas, en cuyo caso pierde. Gana quien acierta primero; si un jugador
+ * abandona, gana el otro.
+ * <p>
+ * Es segura para hilos: los dos jugadores la usan desde sus conexiones y
+ * {@link #awaitTurn} bloquea hasta que le toca a un jugador o termina la
+ * partida. Se usa un {@link ReentrantLock} en vez de {@code synchronized}
+ * para que la espera no fije el hilo virtual a su hilo portador.
+ */
+public final class HeadToHead {
+
+    private final long id;
+    private final GameEngine engine;
+    private final int[] secrets = new int[2];
+    private final int[] questionsAsked = new int[2];
+    private int turn;
+    // -1 mientras se juega; si no, el asiento ganador
+    private int winner = -1;
+    private String lastMove = "START";
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * @param id Identificador de la partida.
+     * @param engine Motor con el catálogo.
+     */
+    public HeadToHead(long id, GameEngine engine) {
+        this.id = id;
+        this.engine = engine;
+        for (int seat = 0; seat < 2; seat++) {
+            secrets[seat] = AuxMethods.generateCharcter(engine.catalog());
+        }
+    }
+
+    public long id() {
+        return id;
+    }
+
+    /**
+     * @return El motor (y el catálogo) con que se juega esta partida.
+     */
+    public GameEngine engine() {
+        return engine;
+    }
+
+    /**
+     * @param seat Asiento (0 o 1).
+     * @return El nombre del personaje secreto de ese jugador.
+     */
+    public String secretName(int seat) {
+        lock.lock();
+        try {
+            return engine.catalog().name(secrets[seat]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isOver() {
+        lock.lock();
+        try {
+            return winner >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int winner() {
+        lock.lock();
+        try {
+            return winner;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int remainingQuestions(int seat) {
+        lock.lock();
+        try {
+            return GameEngine.MAX_QUESTIONS - questionsAsked[seat];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pregunta si el personaje del rival tiene una característica y pasa el
+     * turno.
+     *
+     * @param seat Asiento de quien pregunta.
+     * @param attribute Identificador de la característica.
+     * @return {@code true} si el personaje del rival la tiene.
+     */
+    public boolean ask(int seat, int attribute) {
+        return ask(seat, attribute, engine.catalog().attributeName(attribute));
+    }
+
+    /**
+     * Pregunta por una característica por su nombre. Si ningún personaje del
+     * catálogo la tiene la respuesta es NO, como en la botonera del juego.
+     *
+     * @param seat Asiento de quien pregunta.
+     * @param question Nombre de la característica.
+     * @return {@code true} si el personaje del rival la tiene.
+     */
+    public boolean ask(int seat, String question) {
+        return ask(seat, engine.catalog().attributeId(question), question);
+    }
+
+    private boolean ask(int seat, int attribute, String name) {
+        lock.lock();
+        try {
+            checkTurn(seat);
+            if (questionsAsked[seat] >= GameEngine.MAX_QUESTIONS) {
+                throw new IllegalStateException("No te quedan preguntas, tienes que adivinar");
+            }
+            questionsAsked[seat]++;
+            boolean answer = engine.catalog().hasAttribute(secrets[1 - seat], attribute);
+            pass("ASK " + name + " " + (answer ? "YES" : "NO"));
+            return answer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Intenta adivinar el personaje del rival.
+     *
+     * @param seat Asiento de quien adivina.
+     * @param character Índice del personaje propuesto (-1 si no existe).
+     * @return {@code true} si ha acertado.
+     */
+    public boolean guess(int seat, int character) {
+        lock.lock();
+        try {
+            checkTurn(seat);
+            if (character == secrets[1 - seat]) {
+                finish(seat, "GUESS " + engine.catalog().name(character) + " WIN");
+                return true;
+            }
+            if (questionsAsked[seat] >= GameEngine.MAX_QUESTIONS) {
+                finish(1 - seat, "GUESS LOSE");
+            } else {
+                pass("GUESS WRONG");
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * El jugador abandona: gana el rival.
+     *
+     * @param seat Asiento de quien abandona.
+     */
+    public void forfeit(int seat) {
+        lock.lock();
+        try {
+            if (winner < 0) {
+                finish(1 - seat, "FORFEIT");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera a que sea el turno del jugador o a que termine la partida.
+     *
+     * @param seat Asiento del jugador.
+     * @param timeoutMillis Tiempo máximo de espera.
+     * @return La última jugada del rival, o {@code null} si se agotó el
+     * tiempo.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    public String awaitTurn(int seat, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (winner < 0 && turn != seat) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                changed.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            return lastMove;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkTurn(int seat) {
+        if (winner >= 0) {
+            throw new IllegalStateException("La partida ya ha terminado");
+        }
+        if (turn != seat) {
+            throw new IllegalStateException("No es tu turno");
+        }
+    }
+
+    private void pass(String move) {
+        lastMove = move;
+        turn = 1 - turn;
+        changed.signalAll();
+    }
+
+    private void finish(int seat, String move) {
+        lastMove = move;
+        winner = seat;
+        changed.signalAll();
+    }
+}
@@ -0,0 +1,267 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Caché de imágenes de toda la aplicación, indexada por (recurso, ancho,
+ * alto). Las imágenes se decodifican y escalan en un hilo de fondo y se
+ * reutilizan entre partidas, de modo que reiniciar el juego no vuelve a
+ * decodificar ningún JPEG. Los retratos incluidos en el {@link SpriteAtlas}
+ * se recortan del atlas en vez de decodificarse. Mientras una imagen no está
+ * lista se muestra un marcador de posición.
+ * <p>
+ * Un recurso que no se puede cargar se recuerda como fallido durante
+ * {@value #RETRY_SECONDS} segundos, así que quien lo repinta no lo vuelve a
+ * pedir en bucle, y después se reintenta.
+ */
+public final class ImageCache {
+
+    // Límite de imágenes escaladas que se conservan (varias resoluciones por personaje)
+    private static final int MAX_ENTRIES = 512;
+    // Tiempo que se recuerda un fallo antes de volver a intentar la carga
+    static final int RETRY_SECONDS = 30;
+
+    private static final ImageCache INSTANCE = new ImageCache();
+
+    private final Map<Key, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+    private final ExecutorService loader = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)), runnable -> {
+        Thread thread = new Thread(runnable, "image-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Retrato de cada recurso tal como está en el atlas, o null si no está (se completa al cargar el atlas)
+    private final Map<String, CompletableFuture<BufferedImage>> sprites = new ConcurrentHashMap<>();
+    private CompletableFuture<SpriteAtlas> atlas;
+
+    private record Key(String resource, int width, int height) {
+    }
+
+    private ImageCache() {
+    }
+
+    public static ImageCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Devuelve la imagen escalada, decodificándola en segundo plano la
+     * primera vez que se pide.
+     *
+     * @param resource Ruta del recurso en el classpath (por ejemplo
+     * "/img/kratos.jpeg").
+     * @param width Ancho deseado en píxeles.
+     * @param height Alto deseado en píxeles.
+     * @return Un futuro que se completa con la imagen escalada.
+     */
+    public CompletableFuture<BufferedImage> get(String resource, int width, int height) {
+        Key key = new Key(resource, Math.max(1, width), Math.max(1, height));
+        CompletableFuture<BufferedImage> image = images.get(key);
+        if (image != null) {
+            return image;
+        }
+        trim();
+        return images.computeIfAbsent(key, k -> {
+            CompletableFuture<BufferedImage> loading = CompletableFuture.supplyAsync(() -> decode(k), loader);
+            loading.whenComplete((result, error) -> {
+                if (error != null) {
+                    CompletableFuture.delayedExecutor(RETRY_SECONDS, TimeUnit.SECONDS)
+                            .execute(() -> images.remove(k, loading));
+                }
+            });
+            return loading;
+        });
+    }
+
+    /**
+     * Devuelve una imagen para dibujarla escalada al pintar con
+     * {@code drawImage(imagen, x, y, width, height)}: si el recurso está en el
+     * atlas, su retrato tal cual, sin crear una copia por cada tamaño de
+     * celda; si no, la imagen escalada de {@link #get}. Mientras el atlas se
+     * carga se devuelve siempre el mismo futuro por recurso.
+     *
+     * @param resource Ruta del recurso.
+     * @param width Ancho al que se pintará.
+     * @param height Alto al que se pintará.
+     * @return Un futuro con la imagen.
+     */
+    public CompletableFuture<BufferedImage> forPainting(String resource, int width, int height) {
+        CompletableFuture<BufferedImage> sprite = sprites.computeIfAbsent(resource,
+                r -> atlas().thenApply(loaded -> loaded == null ? null : loaded.sprite(r)));
+        if (!sprite.isDone()) {
+            return sprite;
+        }
+        // Si el atlas no se pudo usar se carga el fichero del retrato, como si no estuviera en el atlas
+        if (!sprite.isCompletedExceptionally() && sprite.join() != null) {
+            return sprite;
+        }
+        return get(resource, width, height);
+    }
+
+    private synchronized CompletableFuture<SpriteAtlas> atlas() {
+        if (atlas == null) {
+            atlas = CompletableFuture.supplyAsync(SpriteAtlas::getDefault, loader);
+        }
+        return atlas;
+    }
+
+    /**
+     * Devuelve la imagen solo si ya está decodificada y escalada; si no, pide
+     * que se cargue en segundo plano y devuelve {@code null} sin esperar.
+     *
+     * @param resource Ruta del recurso.
+     * @param width Ancho deseado.
+     * @param height Alto deseado.
+     * @return La imagen lista o {@code null}.
+     */
+    public BufferedImage getIfReady(String resource, int width, int height) {
+        CompletableFuture<BufferedImage> image = get(resource, width, height);
+        if (image.isDone() && !image.isCompletedExceptionally()) {
+            return image.join();
+        }
+        return null;
+    }
+
+    /**
+     * Asigna a la etiqueta un marcador de posición y, cuando la imagen está
+     * lista, la sustituye en el hilo de eventos de Swing.
+     *
+     * @param label Etiqueta que mostrará la imagen.
+     * @param resource Ruta del recurso.
+     * @param width Ancho deseado.
+     * @param height Alto deseado.
+     * @return Un futuro con el icono definitivo.
+     */
+    public CompletableFuture<ImageIcon> load(JLabel label, String resource, int width, int height) {
+        CompletableFuture<BufferedImage> image = get(resource, width, height);
+        if (!image.isDone()) {
+            label.setIcon(new ImageIcon(placeholder(width, height)));
+        }
+        return image.thenApplyAsync(ImageIcon::new, SwingUtilities::invokeLater)
+                .whenComplete((icon, error) -> {
+                    if (icon != null) {
+                        label.setIcon(icon);
+                    } else {
+                        System.getLogger(ImageCache.class.getName()).log(System.Logger.Level.WARNING,
+                                "No se pudo cargar " + resource, error);
+                    }
+                });
+    }
+
+    // Quita entradas ya cargadas si la caché supera el límite
+    private void trim() {
+        if (images.size() < MAX_ENTRIES) {
+            return;
+        }
+        Iterator<CompletableFuture<BufferedImage>> it = images.values().iterator();
+        while (it.hasNext() && images.size() >= MAX_ENTRIES) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    private BufferedImage decode(Key key) {
+        long start = Metrics.start();
+        try {
+            return decodeUntimed(key);
+        } finally {
+            Metrics.IMAGE_LOAD.recordSince(start);
+        }
+    }
+
+    private BufferedImage decodeUntimed(Key key) {
+        // Si el retrato está en el atlas generado en la compilación se recorta de ahí
+        SpriteAtlas atlas = SpriteAtlas.getDefault();
+        BufferedImage sprite = atlas == null ? null : atlas.sprite(key.resource());
+        if (sprite != null) {
+            if (sprite.getWidth() == key.width() && sprite.getHeight() == key.height()) {
+                return sprite;
+            }
+            return scale(sprite, key.width(), key.height());
+        }
+
+        URL url = ImageCache.class.getResource(key.resource());
+        if (url == null) {
+            throw new UncheckedIOException(new IOException("Recurso no encontrado: " + key.resource()));
+        }
+        try {
+            BufferedImage source = ImageIO.read(url);
+            if (source == null) {
+                throw new IOException("Formato de imagen no soportado: " + key.resource());
+            }
+            return scale(source, key.width(), key.height());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Escala una imagen con calidad similar a {@code SCALE_SMOOTH}: se reduce
+     * a la mitad en varios pasos bilineales hasta acercarse al tamaño final.
+     *
+     * @param source Imagen original.
+     * @param width Ancho final.
+     * @param height Alto final.
+     * @return Una imagen nueva del tamaño pedido.
+     */
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        // Los PNG con transparencia la conservan
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            if (w < width * 2 && h < height * 2) {
+                w = width;
+                h = height;
+            }
+            BufferedImage step = new BufferedImage(w, h, type);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = step;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    /**
+     * Imagen gris que se muestra mientras se carga la definitiva.
+     *
+     * @param width Ancho del marcador.
+     * @param height Alto del marcador.
+     * @return Un marcador de posición del tamaño pedido.
+     */
+    static BufferedImage placeholder(int width, int height) {
+        BufferedImage image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.LIGHT_GRAY);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        return image;
+    }
+}
@@ -1,6 +1,4 @@
 
-import java.awt.Image;
-import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
 import javax.swing.JTextField;
 
@@ -24,7 +22,7 @@ public class IntroScreen extends javax.swing.JFrame {
 
     public IntroScreen() {
         initComponents();
-        introAudio.playSound("/audio/law.wav");
+        introAudio.playMusic("/audio/law.wav");
     }
 
     /**
@@ -111,19 +109,15 @@ public class IntroScreen extends javax.swing.JFrame {
 
     private void formWindowOpened(java.awt.event.WindowEvent evt) {//GEN-FIRST:event_formWindowOpened
         String path = "/img/quien.png";
-        // Cargar la imagen
-        ImageIcon original = new ImageIcon(getClass().getResource(path));
 
         // Obtener tamaño del JLabel
         int ancho = jLabel1.getWidth();
         int alto = jLabel1.getHeight();
 
-        // Escalar imagen
-        Image scaledImg = original.getImage().getScaledInstance(ancho, alto, Image.SCALE_SMOOTH);
-        ImageIcon scaledIcon = new ImageIcon(scaledImg);
-
-        // Establecer imagen en el JLabel
-        jLabel1.setIcon(scaledIcon);        // TODO add your handling code here:
+        // Cargar y escalar la imagen en segundo plano; la caché la asigna al JLabel cuando está lista
+        ImageCache.getInstance().load(jLabel1, path, ancho, alto);
+        // Mientras el jugador está en esta pantalla se va preparando la partida
+        GamePrewarmer.getInstance().prewarmWindow();
     }//GEN-LAST:event_formWindowOpened
 
     private void jMenuItem2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem2ActionPerformed
@@ -145,8 +139,8 @@ public class IntroScreen extends javax.swing.JFrame {
         }
 
         this.name = this.input;
-        System.out.println("nombre     " + this.name);
-        GameScreen newGame = new GameScreen(this.name);
+        // Las estadísticas de un jugador que vuelve se muestran en la ventana de juego
+        GameScreen newGame = GamePrewarmer.getInstance().take(this.name);
         newGame.setVisible(true);        // TODO add your handling code here:
         this.dispose();
         introAudio.stopAudio();
@@ -187,6 +181,11 @@ public class IntroScreen extends javax.swing.JFrame {
         //</editor-fold>
         //</editor-fold>
 
+        // Recargar el catálogo de personajes si se cambia con el juego abierto
+        CatalogReloader.start();
+        // Medir el hilo de eventos y guardar en Logs/ la pila de los eventos que lo bloquean
+        EdtWatchdog.install();
+
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(new Runnable() {
             public void run() {
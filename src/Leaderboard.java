@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Clasificación en memoria de todas las puntuaciones del {@link ScoreJournal}.
+ * Es un treap de estadísticos de orden guardado en arrays de primitivos (sin un
+ * objeto por nodo), ordenado por puntuación de mayor a menor y, a igualdad,
+ * por orden de llegada. Cada nodo sabe el tamaño de su subárbol, así que el
+ * top-K, una página cualquiera, el puesto y el percentil se resuelven en
+ * O(log n) más el tamaño del resultado.
+ * <p>
+ * El diario se lee de forma incremental: {@link #refresh()} solo procesa los
+ * registros añadidos desde la última vez.
+ */
+public final class Leaderboard {
+
+    private static final int NIL = -1;
+
+    private static Leaderboard defaultLeaderboard;
+
+    /**
+     * Una posición de la clasificación.
+     *
+     * @param rank Puesto (1 es el mejor).
+     * @param player Nombre del jugador.
+     * @param score Puntuación.
+     */
+    public record Ranked(int rank, String player, int score) {
+    }
+
+    private final ScoreJournal journal;
+    private ScoreJournal.Position position = ScoreJournal.START;
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+
+    // Nodos del treap: el índice del nodo es también su orden de llegada
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int[] size = new int[64];
+    private int[] priority = new int[64];
+    private int[] score = new int[64];
+    private int[] player = new int[64];
+    private int count;
+    private int root = NIL;
+
+    // Jugadores distintos y su mejor puntuación
+    private final Map<String, Integer> playerIds = new HashMap<>();
+    private final List<String> players = new ArrayList<>();
+    private int[] best = new int[16];
+
+    /**
+     * @param journal Diario del que se cargan las puntuaciones, o {@code null}
+     * para una clasificación que solo se llena con {@link #add}.
+     */
+    public Leaderboard(ScoreJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Devuelve la clasificación del diario del juego, ya actualizada.
+     *
+     * @return La clasificación por defecto.
+     * @throws IOException Si no se puede leer el diario.
+     */
+    public static synchronized Leaderboard getDefault() throws IOException {
+        if (defaultLeaderboard == null) {
+            defaultLeaderboard = new Leaderboard(ScoreJournal.getDefault());
+        }
+        defaultLeaderboard.refresh();
+        return defaultLeaderboard;
+    }
+
+    /**
+     * Incorpora los registros añadidos al diario desde la última lectura. Si
+     * el diario se ha compactado entretanto, se vuelve a cargar entero.
+     *
+     * @throws IOException Si no se puede leer el diario.
+     */
+    public synchronized void refresh() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        ScoreJournal.Position next = journal.read(position, entry -> add(entry.player(), entry.score()));
+        if (next == null) {
+            clear();
+            next = journal.read(ScoreJournal.START, entry -> add(entry.player(), entry.score()));
+        }
+        position = next;
+    }
+
+    private void clear() {
+        count = 0;
+        root = NIL;
+        playerIds.clear();
+        players.clear();
+    }
+
+    /**
+     * Añade una puntuación a la clasificación (no la guarda en el diario).
+     *
+     * @param name Nombre del jugador.
+     * @param value Puntuación.
+     */
+    public synchronized void add(String name, int value) {
+        if (count == left.length) {
+            int capacity = count * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            size = Arrays.copyOf(size, capacity);
+            priority = Arrays.copyOf(priority, capacity);
+            score = Arrays.copyOf(score, capacity);
+            player = Arrays.copyOf(player, capacity);
+        }
+        Integer known = playerIds.get(name);
+        int id;
+        if (known == null) {
+            id = players.size();
+            players.add(name);
+            playerIds.put(name, id);
+            if (id == best.length) {
+                best = Arrays.copyOf(best, id * 2);
+            }
+            best[id] = value;
+        } else {
+            id = known;
+            best[id] = Math.max(best[id], value);
+        }
+        int node = count++;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        priority[node] = random.nextInt();
+        score[node] = value;
+        player[node] = id;
+        root = insert(root, node);
+    }
+
+    // Inserción recursiva: la profundidad esperada de un treap es O(log n)
+    private int insert(int subtree, int node) {
+        if (subtree == NIL) {
+            return node;
+        }
+        size[subtree]++;
+        if (before(node, subtree)) {
+            left[subtree] = insert(left[subtree], node);
+            if (priority[left[subtree]] > priority[subtree]) {
+                subtree = rotateRight(subtree);
+            }
+        } else {
+            right[subtree] = insert(right[subtree], node);
+            if (priority[right[subtree]] > priority[subtree]) {
+                subtree = rotateLeft(subtree);
+            }
+        }
+        return subtree;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        size[pivot] = size[node];
+        size[node] = 1 + sizeOf(left[node]) + sizeOf(right[node]);
+        return pivot;
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        size[pivot] = size[node];
+        size[node] = 1 + sizeOf(left[node]) + sizeOf(right[node]);
+        return pivot;
+    }
+
+    private int sizeOf(int node) {
+        return node == NIL ? 0 : size[node];
+    }
+
+    // Mayor puntuación primero; a igualdad, el que llegó antes
+    private boolean before(int a, int b) {
+        return score[a] > score[b] || (score[a] == score[b] && a < b);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized int playerCount() {
+        return players.size();
+    }
+
+    /**
+     * @param k Número de puestos.
+     * @return Los {@code k} mejores puestos (o menos si no hay tantos).
+     */
+    public List<Ranked> top(int k) {
+        return page(0, k);
+    }
+
+    /**
+     * Devuelve un tramo de la clasificación sin recorrer los puestos
+     * anteriores: se baja hasta el primero en O(log n) y desde ahí se avanza
+     * en orden.
+     *
+     * @param from Índice del primer puesto (0 es el mejor).
+     * @param length Número máximo de puestos.
+     * @return Los puestos pedidos.
+     */
+    public synchronized List<Ranked> page(int from, int length) {
+        if (from < 0 || from >= count || length <= 0) {
+            return new ArrayList<>();
+        }
+        List<Ranked> result = new ArrayList<>(Math.min(length, count - from));
+        // Pila con los antecesores que van después del primer puesto en el recorrido
+        int[] stack = new int[64];
+        int depth = 0;
+        int node = root;
+        int k = from;
+        while (node != NIL) {
+            int leftSize = sizeOf(left[node]);
+            if (k < leftSize) {
+                stack = push(stack, depth++, node);
+                node = left[node];
+            } else if (k == leftSize) {
+                stack = push(stack, depth++, node);
+                break;
+            } else {
+                k -= leftSize + 1;
+                node = right[node];
+            }
+        }
+        int rank = from + 1;
+        while (depth > 0 && result.size() < length) {
+            node = stack[--depth];
+            result.add(new Ranked(rank++, players.get(player[node]), score[node]));
+            for (int next = right[node]; next != NIL; next = left[next]) {
+                stack = push(stack, depth++, next);
+            }
+        }
+        return result;
+    }
+
+    private static int[] push(int[] stack, int depth, int node) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth] = node;
+        return stack;
+    }
+
+    /**
+     * @param value Puntuación.
+     * @return El puesto que tendría esa puntuación (1 si nadie la supera).
+     */
+    public synchronized int rankOf(int value) {
+        int greater = 0;
+        for (int node = root; node != NIL;) {
+            if (score[node] > value) {
+                greater += sizeOf(left[node]) + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return greater + 1;
+    }
+
+    /**
+     * @param name Nombre del jugador.
+     * @return El puesto de su mejor puntuación, o -1 si no ha jugado.
+     */
+    public synchronized int rank(String name) {
+        Integer id = playerIds.get(name);
+        return id == null ? -1 : rankOf(best[id]);
+    }
+
+    /**
+     * @param name Nombre del jugador.
+     * @return Su mejor puntuación, o -1 si no ha jugado.
+     */
+    public synchronized int bestScore(String name) {
+        Integer id = playerIds.get(name);
+        return id == null ? -1 : best[id];
+    }
+
+    /**
+     * @param name Nombre del jugador.
+     * @return Porcentaje de puntuaciones registradas por debajo de su mejor
+     * marca (0-100), o -1 si no ha jugado.
+     */
+    public synchronized double percentile(String name) {
+        Integer id = playerIds.get(name);
+        if (id == null) {
+            return -1;
+        }
+        int below = 0;
+        for (int node = root; node != NIL;) {
+            if (score[node] < best[id]) {
+                below += sizeOf(right[node]) + 1;
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return 100.0 * below / count;
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Emparejamiento de jugadores para {@link HeadToHead}. Los jugadores que
+ * esperan están en una {@link ConcurrentLinkedQueue} (cola MPMC sin
+ * cerrojos) y cada llegada saca como mucho dos entradas de la cabeza, así que
+ * emparejar es O(1). Cada entrada se reclama con un CAS, de modo que una
+ * espera que caduca y un emparejamiento simultáneo nunca se pisan: gana
+ * quien cambia antes el estado y las entradas canceladas se descartan al
+ * llegar a la cabeza.
+ * <p>
+ * Si ya hay {@link #maxWaiting()} jugadores esperando, las nuevas peticiones
+ * se rechazan en el acto en lugar de acumularse.
+ */
+public final class Matchmaker {
+
+    /**
+     * Una plaza emparejada: la partida y el asiento (0 empieza).
+     *
+     * @param match Partida a dos jugadores.
+     * @param seat Asiento del jugador.
+     */
+    public record Seat(HeadToHead match, int seat) {
+    }
+
+    private static final int WAITING = 0;
+    private static final int CLAIMED = 1;
+    private static final int CANCELLED = 2;
+
+    // Jugador en espera; el estado decide quién se queda con él
+    private static final class Ticket {
+
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        final CompletableFuture<Seat> seat = new CompletableFuture<>();
+    }
+
+    private final Supplier<GameEngine> engines;
+    private final int maxWaiting;
+    private final ConcurrentLinkedQueue<Ticket> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong nextMatch = new AtomicLong();
+    private final AtomicLong pairings = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * @param engine Motor con el catálogo.
+     * @param maxWaiting Jugadores en espera a partir de los cuales se rechazan
+     * peticiones.
+     */
+    public Matchmaker(GameEngine engine, int maxWaiting) {
+        this(() -> engine, maxWaiting);
+    }
+
+    /**
+     * @param engines Motor con que se crea cada partida (por ejemplo
+     * {@code GameEngine::getDefault}, para seguir las recargas del catálogo).
+     * @param maxWaiting Jugadores en espera a partir de los cuales se rechazan
+     * peticiones.
+     */
+    public Matchmaker(Supplier<GameEngine> engines, int maxWaiting) {
+        this.engines = engines;
+        this.maxWaiting = maxWaiting;
+    }
+
+    public int maxWaiting() {
+        return maxWaiting;
+    }
+
+    public int waiting() {
+        return waiting.get();
+    }
+
+    public long pairings() {
+        return pairings.get();
+    }
+
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    public long rejections() {
+        return rejections.get();
+    }
+
+    /**
+     * Pide rival y espera a tenerlo.
+     *
+     * @param timeoutMillis Tiempo máximo de espera.
+     * @return La plaza asignada, o {@code null} si se agotó el tiempo.
+     * @throws RejectedException Si la cola está llena.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    public Seat join(long timeoutMillis) throws InterruptedException {
+        Ticket ticket = enqueue();
+        try {
+            return ticket.seat.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // CLAIMED es transitorio: acaba en emparejamiento o vuelve a WAITING
+            while (!ticket.seat.isDone()) {
+                if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                    waiting.decrementAndGet();
+                    timeouts.incrementAndGet();
+                    return null;
+                }
+                Thread.onSpinWait();
+            }
+            // Lo emparejaron justo a tiempo
+            return ticket.seat.join();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            while (!ticket.seat.isDone()) {
+                if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                    waiting.decrementAndGet();
+                    throw ex;
+                }
+                Thread.onSpinWait();
+            }
+            // Ya tenía rival: se abandona la partida para no dejarlo esperando
+            Seat seat = ticket.seat.join();
+            seat.match().forfeit(seat.seat());
+            throw ex;
+        }
+    }
+
+    private Ticket enqueue() {
+        // Contrapresión: se reserva la plaza en el contador antes de entrar en la cola
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejections.incrementAndGet();
+            throw new RejectedException();
+        }
+        Ticket ticket = new Ticket();
+        queue.offer(ticket);
+        pair();
+        return ticket;
+    }
+
+    private void pair() {
+        while (true) {
+            Ticket first = claimHead();
+            if (first == null) {
+                return;
+            }
+            Ticket second = claimHead();
+            if (second == null) {
+                // Solo había uno: vuelve a la cola. Si entretanto ha llegado otro, se
+                // reintenta; el último en llegar siempre ve al anterior y los empareja.
+                first.state.set(WAITING);
+                queue.offer(first);
+                Ticket head = queue.peek();
+                if (head == null || head == first) {
+                    return;
+                }
+                continue;
+            }
+            HeadToHead match = new HeadToHead(nextMatch.incrementAndGet(), engines.get());
+            waiting.addAndGet(-2);
+            pairings.incrementAndGet();
+            first.seat.complete(new Seat(match, 0));
+            second.seat.complete(new Seat(match, 1));
+        }
+    }
+
+    // Saca de la cabeza el primer jugador que sigue esperando, descartando los cancelados
+    private Ticket claimHead() {
+        Ticket ticket;
+        while ((ticket = queue.poll()) != null) {
+            if (ticket.state.compareAndSet(WAITING, CLAIMED)) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mide el emparejamiento sin red: {@code java Matchmaker [jugadores]}
+     * lanza un hilo virtual por jugador y todos piden rival a la vez.
+     *
+     * @param args Número de jugadores opcional.
+     */
+    public static void main(String[] args) {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Matchmaker matchmaker = new Matchmaker(GameEngine.getDefault(), players);
+        long start = System.nanoTime();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < players; i++) {
+                threads.execute(() -> {
+                    try {
+                        matchmaker.join(10_000);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d emparejamientos en %.2f s: %.0f/s (%d sin rival)%n", matchmaker.pairings(),
+                seconds, matchmaker.pairings() / seconds, matchmaker.timeouts());
+    }
+
+    /**
+     * La cola de espera está llena.
+     */
+    public static final class RejectedException extends IllegalStateException {
+
+        RejectedException() {
+            super("cola de emparejamiento llena");
+        }
+    }
+}
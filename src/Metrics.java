@@ -0,0 +1,464 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Contadores e histogramas del juego. Se actualizan con {@link LongAdder}, así
+ * que muchos hilos pueden sumar a la vez sin cerrojos ni esperas, y se
+ * consultan por JMX ({@value #OBJECT_NAME}) o como texto con
+ * {@link #snapshot()}.
+ * <p>
+ * Se pueden desactivar con {@code -Dwiw.metrics=false} o en caliente desde
+ * JMX; desactivadas, cada medición es una sola lectura de un campo y no crea
+ * objetos.
+ */
+public final class Metrics {
+
+    static final String OBJECT_NAME = "WhoIsWho:type=Metrics";
+
+    private static final System.Logger LOGGER = System.getLogger(Metrics.class.getName());
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+    private static final List<Histogram> HISTOGRAMS = new ArrayList<>();
+    private static volatile boolean enabled = !"false".equals(System.getProperty("wiw.metrics"));
+
+    /**
+     * Preguntas hechas.
+     */
+    public static final Counter QUESTIONS = new Counter("questions", "Preguntas hechas");
+    /**
+     * Intentos de adivinar el personaje.
+     */
+    public static final Counter GUESSES = new Counter("guesses", "Intentos de adivinar");
+    /**
+     * Intentos acertados.
+     */
+    public static final Counter GUESSES_RIGHT = new Counter("guessesRight", "Intentos acertados");
+    public static final Counter GAMES_WON = new Counter("gamesWon", "Partidas ganadas");
+    public static final Counter GAMES_LOST = new Counter("gamesLost", "Partidas perdidas");
+    /**
+     * Preguntas hechas en cada partida terminada.
+     */
+    public static final Histogram QUESTIONS_PER_GAME = new Histogram("questionsPerGame", "preguntas");
+    /**
+     * Tiempo en comprobar un intento de adivinar, sin contar los diálogos.
+     */
+    public static final Histogram GUESS_LATENCY = new Histogram("guessLatency", "ns");
+    /**
+     * Tiempo en leer y escalar una imagen.
+     */
+    public static final Histogram IMAGE_LOAD = new Histogram("imageLoad", "ns");
+    /**
+     * Tiempo en guardar una puntuación.
+     */
+    public static final Histogram SCORE_WRITE = new Histogram("scoreWrite", "ns");
+    /**
+     * Tiempo en despachar cada evento del hilo de eventos de Swing
+     * ({@link EdtWatchdog}).
+     */
+    public static final Histogram EDT_DISPATCH = new Histogram("edtDispatch", "ns");
+    /**
+     * Eventos de Swing que han superado el umbral de {@link EdtWatchdog}.
+     */
+    public static final Counter EDT_STALLS = new Counter("edtStalls", "Bloqueos del hilo de eventos");
+    /**
+     * Pistas de música que han empezado a sonar ({@link MusicStreamer}).
+     */
+    public static final Counter AUDIO_PLAYS = new Counter("audioPlays", "Pistas de música reproducidas");
+    /**
+     * Reproducciones pedidas de un recurso de audio que no existe.
+     */
+    public static final Counter AUDIO_MISSING_ASSETS = new Counter("audioMissingAssets", "Recursos de audio que faltan");
+    public static final Counter AUDIO_DECODE_FAILURES = new Counter("audioDecodeFailures", "Audio que no se pudo decodificar");
+    public static final Counter AUDIO_LINE_FAILURES = new Counter("audioLineFailures", "Líneas de audio que no se pudieron abrir");
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "No se pudieron publicar las métricas por JMX", ex);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Momento de inicio de una medición de tiempo.
+     *
+     * @return {@link System#nanoTime()}, o 0 si las métricas están
+     * desactivadas.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Registra un intento de adivinar.
+     *
+     * @param right Si acertó.
+     * @param start Valor de {@link #start()} al empezar a comprobarlo.
+     */
+    public static void guessed(boolean right, long start) {
+        GUESS_LATENCY.recordSince(start);
+        GUESSES.increment();
+        if (right) {
+            GUESSES_RIGHT.increment();
+        }
+    }
+
+    /**
+     * Registra una partida terminada.
+     *
+     * @param won Si la ganó.
+     * @param questions Preguntas que hizo.
+     */
+    public static void gameFinished(boolean won, int questions) {
+        (won ? GAMES_WON : GAMES_LOST).increment();
+        QUESTIONS_PER_GAME.record(questions);
+    }
+
+    /**
+     * Contador que solo crece.
+     */
+    public static final class Counter {
+
+        private final String name;
+        private final String description;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String description) {
+            this.name = name;
+            this.description = description;
+            COUNTERS.add(this);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                value.add(amount);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Histograma logarítmico-lineal al estilo HDR: los valores menores que
+     * {@value #SUB_BUCKETS} tienen cubeta propia y a partir de ahí cada
+     * potencia de dos se parte en {@value #SUB_BUCKETS} cubetas, así que
+     * cualquier valor positivo de {@code long} se guarda con un error relativo
+     * menor del 7 %.
+     */
+    public static final class Histogram {
+
+        static final int SUB_BUCKETS = 16;
+        private static final int SUB_BITS = 4;
+        // Los long positivos tienen como mucho el bit 62 a uno
+        private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final String unit;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+            HISTOGRAMS.add(this);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Valor más pequeño que cae en la cubeta
+        static long lowest(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+        }
+
+        /**
+         * @param value Valor medido; los negativos cuentan como 0.
+         */
+        public void record(long value) {
+            if (!enabled) {
+                return;
+            }
+            value = Math.max(0, value);
+            buckets[bucket(value)].increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Registra el tiempo transcurrido desde {@link Metrics#start()}.
+         *
+         * @param start Valor devuelto por {@link Metrics#start()}.
+         */
+        public void recordSince(long start) {
+            if (enabled && start != 0) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        public long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        public double mean() {
+            long count = count();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * @param percentile Percentil entre 0 y 100.
+         * @return El límite inferior de la cubeta donde cae el percentil (0 si
+         * está vacío).
+         */
+        public long percentile(double percentile) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return Math.min(lowest(i), max());
+                }
+            }
+            return max();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    /**
+     * @return Todas las métricas en texto, una por línea.
+     */
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("# métricas Who-is-Who ").append(LocalDateTime.now())
+                .append(enabled ? "" : " (desactivadas)").append('\n');
+        for (Counter counter : COUNTERS) {
+            text.append(counter.name).append(' ').append(counter.get()).append('\n');
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            text.append(String.format("%s count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d %s%n",
+                    histogram.name, histogram.count(), histogram.mean(), histogram.percentile(50),
+                    histogram.percentile(90), histogram.percentile(99), histogram.max(), histogram.unit));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Escribe {@link #snapshot()} en un fichero.
+     *
+     * @param path Fichero de destino (se sobrescribe).
+     * @throws IOException Si no se puede escribir.
+     */
+    public static void dump(Path path) throws IOException {
+        Files.writeString(path, snapshot(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Pone a cero todas las métricas.
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS) {
+            counter.value.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    // Vista JMX: un atributo por contador, cinco por histograma y las operaciones snapshot, dump y reset
+    private static final class Bean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            if (attribute.equals("Enabled")) {
+                return enabled;
+            }
+            for (Counter counter : COUNTERS) {
+                if (counter.name.equals(attribute)) {
+                    return counter.get();
+                }
+            }
+            for (Histogram histogram : HISTOGRAMS) {
+                if (attribute.startsWith(histogram.name)) {
+                    switch (attribute.substring(histogram.name.length())) {
+                        case "Count":
+                            return histogram.count();
+                        case "Mean":
+                            return histogram.mean();
+                        case "P50":
+                            return histogram.percentile(50);
+                        case "P99":
+                            return histogram.percentile(99);
+                        case "Max":
+                            return histogram.max();
+                        default:
+                            break;
+                    }
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            if (!attribute.getName().equals("Enabled")) {
+                throw new AttributeNotFoundException(attribute.getName());
+            }
+            setEnabled((Boolean) attribute.getValue());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException ex) {
+                    // Los atributos desconocidos se omiten, como pide DynamicMBean
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            AttributeList set = new AttributeList();
+            for (Attribute attribute : attributes.asList()) {
+                try {
+                    setAttribute(attribute);
+                    set.add(attribute);
+                } catch (AttributeNotFoundException | ClassCastException ex) {
+                    // Igual que en getAttributes
+                }
+            }
+            return set;
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            switch (action) {
+                case "snapshot":
+                    return snapshot();
+                case "reset":
+                    reset();
+                    return null;
+                case "dump":
+                    try {
+                        dump(Path.of((String) params[0]));
+                        return null;
+                    } catch (IOException ex) {
+                        throw new ReflectionException(ex, "No se pudo escribir " + params[0]);
+                    }
+                default:
+                    throw new ReflectionException(new NoSuchMethodException(action));
+            }
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            attributes.add(new MBeanAttributeInfo("Enabled", "boolean", "Métricas activas", true, true, true));
+            for (Counter counter : COUNTERS) {
+                attributes.add(new MBeanAttributeInfo(counter.name, "long", counter.description, true, false, false));
+            }
+            for (Histogram histogram : HISTOGRAMS) {
+                for (String suffix : new String[]{"Count", "P50", "P99", "Max"}) {
+                    attributes.add(new MBeanAttributeInfo(histogram.name + suffix, "long",
+                            suffix + " de " + histogram.name + " (" + histogram.unit + ")", true, false, false));
+                }
+                attributes.add(new MBeanAttributeInfo(histogram.name + "Mean", "double",
+                        "Media de " + histogram.name + " (" + histogram.unit + ")", true, false, false));
+            }
+            MBeanOperationInfo[] operations = {
+                new MBeanOperationInfo("snapshot", "Todas las métricas en texto", new MBeanParameterInfo[0],
+                "java.lang.String", MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("reset", "Pone las métricas a cero", new MBeanParameterInfo[0],
+                "void", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("dump", "Escribe las métricas en un fichero",
+                new MBeanParameterInfo[]{new MBeanParameterInfo("path", "java.lang.String", "Fichero")},
+                "void", MBeanOperationInfo.ACTION)};
+            return new MBeanInfo(Metrics.class.getName(), "Métricas del juego",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, operations, null);
+        }
+    }
+}
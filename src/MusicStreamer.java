@@ -0,0 +1,398 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Reproducción de música en streaming. En lugar de cargar la pista entera en un
+ * {@code Clip}, se lee en bloques pequeños y se escribe en una
+ * {@link SourceDataLine}, así que la memoria usada no depende de la duración
+ * de la pista. Al llegar al final la pista se vuelve a abrir dentro del mismo
+ * bloque (bucle sin silencios) y al cambiar de pista se hace un fundido
+ * cruzado entre la saliente y la entrante.
+ * <p>
+ * Cada pista se pasa a PCM de 16 bits estéreo sin cambiar su frecuencia, y la
+ * línea se abre a la frecuencia de la pista. Solo para un fundido entre pistas
+ * de frecuencias distintas se convierte la entrante a la de la línea; si Java
+ * Sound no sabe hacerlo, se cambia de pista sin fundido.
+ * <p>
+ * Es el único camino de audio del juego: no hay efectos cortos, solo la música
+ * de la introducción y la de la partida, así que no se precargan sonidos a PCM
+ * ni se mantiene un grupo de {@code Clip}s. Todo el trabajo con líneas se hace
+ * en el hilo de música y la pista de la partida se abre de antemano
+ * ({@link #prepare}), de modo que cambiar de pantalla nunca espera al audio.
+ * Los recursos que faltan, los que no se pueden decodificar y las líneas que
+ * no se pueden abrir se cuentan en {@link Metrics} ({@code audioMissingAssets},
+ * {@code audioDecodeFailures}, {@code audioLineFailures}).
+ */
+public final class MusicStreamer {
+
+    // Las pistas se mezclan como PCM de 16 bits estéreo little-endian
+    private static final int FRAME_SIZE = 4;
+    // Bloque de ~23 ms a 44,1 kHz: suficientemente pequeño para reaccionar rápido a los cambios
+    private static final int CHUNK_FRAMES = 1024;
+    private static final float FADE_SECONDS = 1.5f;
+
+    private static final System.Logger LOGGER = System.getLogger(MusicStreamer.class.getName());
+    private static final MusicStreamer INSTANCE = new MusicStreamer();
+
+    private final BlockingQueue<Runnable> commands = new LinkedBlockingQueue<>();
+    private Thread thread;
+
+    // Estado del hilo de música (solo se toca desde ese hilo)
+    private SourceDataLine line;
+    private Track current;
+    private Track fadingOut;
+    // Pista abierta de antemano para que play() no tenga que abrirla
+    private Track prepared;
+    private int fadeFrame;
+    private final byte[] mixBuffer = new byte[CHUNK_FRAMES * FRAME_SIZE];
+    private final byte[] fadeBuffer = new byte[CHUNK_FRAMES * FRAME_SIZE];
+
+    private MusicStreamer() {
+    }
+
+    public static MusicStreamer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Empieza a reproducir una pista en bucle. Si ya sonaba otra, se hace un
+     * fundido cruzado entre ambas.
+     *
+     * @param resource Ruta del recurso de audio.
+     */
+    public void play(String resource) {
+        submit(() -> {
+            if (current != null && current.resource.equals(resource)) {
+                return;
+            }
+            Track next;
+            if (prepared != null && prepared.resource.equals(resource)) {
+                next = prepared;
+                prepared = null;
+            } else {
+                next = Track.open(resource);
+            }
+            if (next == null) {
+                return;
+            }
+            closeQuietly(fadingOut);
+            fadingOut = null;
+            if (current != null && !canMix(next)) {
+                // No se puede mezclar con la que suena: se corta en lugar de fundir
+                closeQuietly(current);
+                current = null;
+            }
+            fadingOut = current;
+            fadeFrame = 0;
+            current = next;
+            Metrics.AUDIO_PLAYS.increment();
+        });
+    }
+
+    // Si la pista puede sonar en la línea abierta (convirtiéndola si hace falta)
+    private boolean canMix(Track next) {
+        // Sin línea todavía no ha sonado nada que fundir
+        return line != null && (next.format.matches(line.getFormat()) || next.convertTo(line.getFormat()));
+    }
+
+    /**
+     * Abre una pista y lee su primer bloque en el hilo de música sin
+     * reproducirla, para que el siguiente {@link #play} de esa pista empiece
+     * sin esperar a abrir y decodificar el fichero. Solo se guarda una.
+     *
+     * @param resource Ruta del recurso de audio.
+     */
+    public void prepare(String resource) {
+        submit(() -> {
+            if ((prepared != null && prepared.resource.equals(resource))
+                    || (current != null && current.resource.equals(resource))) {
+                return;
+            }
+            closeQuietly(prepared);
+            prepared = Track.open(resource);
+            if (prepared != null) {
+                prepared.prime(CHUNK_FRAMES * FRAME_SIZE);
+            }
+        });
+    }
+
+    /**
+     * Detiene una pista si es la que está sonando. Si ya se está apagando por
+     * un fundido cruzado no se hace nada, así la pantalla anterior puede
+     * llamar a {@code stopAudio()} sin cortar la música de la nueva.
+     *
+     * @param resource Ruta del recurso de audio.
+     */
+    public void stop(String resource) {
+        submit(() -> {
+            if (current != null && current.resource.equals(resource)) {
+                closeQuietly(current);
+                current = null;
+                if (fadingOut == null && line != null) {
+                    line.flush();
+                }
+            }
+        });
+    }
+
+    private synchronized void submit(Runnable command) {
+        commands.add(command);
+        if (thread == null) {
+            thread = new Thread(this::run, "music");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                // Sin nada que sonar el hilo se queda esperando órdenes
+                Runnable command = current == null && fadingOut == null ? commands.take() : commands.poll();
+                while (command != null) {
+                    command.run();
+                    command = commands.poll();
+                }
+                if (current != null || fadingOut != null) {
+                    writeChunk();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeChunk() {
+        // Sin fundido en curso la línea sigue a la pista: se abre (o reabre) a su frecuencia
+        if (line == null || (fadingOut == null && !current.format.matches(line.getFormat()))) {
+            Track playing = current != null ? current : fadingOut;
+            if (line != null) {
+                line.close();
+            }
+            try {
+                line = AudioSystem.getSourceDataLine(playing.format);
+                line.open(playing.format, CHUNK_FRAMES * FRAME_SIZE * 4);
+                line.start();
+            } catch (LineUnavailableException | IllegalArgumentException ex) {
+                reportLineFailure(playing.resource, ex);
+                line = null;
+                closeQuietly(current);
+                closeQuietly(fadingOut);
+                current = null;
+                fadingOut = null;
+                return;
+            }
+        }
+        int bytes = mixBuffer.length;
+        if (current != null) {
+            current.read(mixBuffer, bytes);
+        } else {
+            Arrays.fill(mixBuffer, (byte) 0);
+        }
+        if (fadingOut != null) {
+            fadingOut.read(fadeBuffer, bytes);
+            crossfade(bytes);
+        }
+        line.write(mixBuffer, 0, bytes);
+    }
+
+    // Mezcla muestra a muestra la pista entrante (subiendo) con la saliente (bajando)
+    private void crossfade(int bytes) {
+        int fadeFrames = (int) (line.getFormat().getFrameRate() * FADE_SECONDS);
+        for (int i = 0; i < bytes; i += FRAME_SIZE) {
+            float in = Math.min(1f, (float) fadeFrame / fadeFrames);
+            float out = 1f - in;
+            for (int c = 0; c < FRAME_SIZE; c += 2) {
+                int a = (short) ((mixBuffer[i + c] & 0xFF) | (mixBuffer[i + c + 1] << 8));
+                int b = (short) ((fadeBuffer[i + c] & 0xFF) | (fadeBuffer[i + c + 1] << 8));
+                int mixed = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(a * in + b * out)));
+                mixBuffer[i + c] = (byte) mixed;
+                mixBuffer[i + c + 1] = (byte) (mixed >> 8);
+            }
+            fadeFrame++;
+        }
+        if (fadeFrame >= fadeFrames) {
+            closeQuietly(fadingOut);
+            fadingOut = null;
+        }
+    }
+
+    private void reportMissing(String resource) {
+        Metrics.AUDIO_MISSING_ASSETS.increment();
+        LOGGER.log(System.Logger.Level.WARNING, "Falta el recurso de audio " + resource);
+    }
+
+    private void reportDecodeFailure(String resource, Exception ex) {
+        Metrics.AUDIO_DECODE_FAILURES.increment();
+        LOGGER.log(System.Logger.Level.WARNING, "No se pudo decodificar " + resource, ex);
+    }
+
+    private void reportLineFailure(String resource, Exception ex) {
+        Metrics.AUDIO_LINE_FAILURES.increment();
+        LOGGER.log(System.Logger.Level.WARNING, "No hay línea de audio para " + resource, ex);
+    }
+
+    private static void closeQuietly(Track track) {
+        if (track != null) {
+            track.close();
+        }
+    }
+
+    // Pista abierta en streaming como PCM de 16 bits estéreo
+    private static final class Track {
+
+        final String resource;
+        // Formato en que entrega los bytes; solo cambia con convertTo()
+        AudioFormat format;
+        private AudioInputStream stream;
+        // Primer bloque leído por prime(), que se entrega antes de seguir leyendo del flujo
+        private byte[] primed;
+        private int primedOffset;
+
+        private Track(String resource, AudioInputStream stream) {
+            this.resource = resource;
+            this.stream = stream;
+            format = stream.getFormat();
+        }
+
+        static Track open(String resource) {
+            if (MusicStreamer.class.getResource(resource) == null) {
+                INSTANCE.reportMissing(resource);
+                return null;
+            }
+            try {
+                return new Track(resource, decode(resource, null));
+            } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException ex) {
+                INSTANCE.reportDecodeFailure(resource, ex);
+                return null;
+            }
+        }
+
+        /**
+         * Abre el recurso como PCM de 16 bits estéreo a su frecuencia o, si
+         * se indica {@code rate}, a ese formato. Cada paso es una conversión
+         * aparte porque Java Sound no encadena convertidores por sí solo.
+         */
+        private static AudioInputStream decode(String resource, AudioFormat rate)
+                throws IOException, UnsupportedAudioFileException {
+            InputStream in = MusicStreamer.class.getResourceAsStream(resource);
+            if (in == null) {
+                throw new IOException("Falta el recurso de audio " + resource);
+            }
+            AudioInputStream stream = AudioSystem.getAudioInputStream(new BufferedInputStream(in));
+            AudioFormat source = stream.getFormat();
+            AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, source.getChannels(), true, false);
+            if (!source.matches(pcm)) {
+                stream = AudioSystem.getAudioInputStream(pcm, stream);
+            }
+            AudioFormat stereo = new AudioFormat(source.getSampleRate(), 16, 2, true, false);
+            if (!pcm.matches(stereo)) {
+                stream = AudioSystem.getAudioInputStream(stereo, stream);
+            }
+            if (rate != null && !stereo.matches(rate)) {
+                stream = AudioSystem.getAudioInputStream(rate, stream);
+            }
+            return stream;
+        }
+
+        /**
+         * Vuelve a abrir la pista desde el principio convertida a otra
+         * frecuencia, para mezclarla con la que suena.
+         *
+         * @return {@code false} si no se puede convertir; la pista sigue como
+         * estaba.
+         */
+        boolean convertTo(AudioFormat target) {
+            AudioInputStream converted;
+            try {
+                converted = decode(resource, target);
+            } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException ex) {
+                LOGGER.log(System.Logger.Level.DEBUG, "No se puede convertir " + resource + " a " + target, ex);
+                return false;
+            }
+            close();
+            stream = converted;
+            format = target;
+            primed = null;
+            return true;
+        }
+
+        // Reabre la pista para el bucle en el mismo formato en que sonaba
+        private AudioInputStream reopen() {
+            try {
+                return decode(resource, format);
+            } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException ex) {
+                LOGGER.log(System.Logger.Level.WARNING, "No se pudo volver a abrir " + resource, ex);
+                return null;
+            }
+        }
+
+        /**
+         * Llena el buffer entero; si la pista se acaba a mitad, se vuelve a
+         * abrir y se sigue leyendo desde el principio sin dejar hueco.
+         */
+        void read(byte[] buffer, int length) {
+            int filled = 0;
+            if (primed != null) {
+                filled = Math.min(length, primed.length - primedOffset);
+                System.arraycopy(primed, primedOffset, buffer, 0, filled);
+                primedOffset += filled;
+                if (primedOffset == primed.length) {
+                    primed = null;
+                }
+            }
+            boolean reopened = false;
+            while (filled < length && stream != null) {
+                int n;
+                try {
+                    n = stream.read(buffer, filled, length - filled);
+                } catch (IOException ex) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Error leyendo " + resource, ex);
+                    n = -1;
+                }
+                if (n > 0) {
+                    filled += n;
+                    reopened = false;
+                } else if (n < 0) {
+                    close();
+                    // Una pista vacía no debe reabrirse en un bucle infinito
+                    stream = reopened ? null : reopen();
+                    reopened = true;
+                }
+            }
+            Arrays.fill(buffer, filled, length, (byte) 0);
+        }
+
+        // Decodifica ya el primer bloque, que es lo que más tarda en llegar al abrir la pista
+        void prime(int length) {
+            byte[] first = new byte[length];
+            read(first, length);
+            primed = first;
+            primedOffset = 0;
+        }
+
+        void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ex) {
+                    LOGGER.log(System.Logger.Level.DEBUG, "Error cerrando " + resource, ex);
+                }
+            }
+        }
+    }
+}
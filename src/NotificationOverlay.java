@@ -0,0 +1,193 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JLayeredPane;
+import javax.swing.JPanel;
+import javax.swing.JRootPane;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Aviso superpuesto a la ventana, sin diálogos modales. Se pinta en la capa
+ * {@link JLayeredPane#POPUP_LAYER} centrado en la parte superior y el resto de
+ * la ventana sigue respondiendo mientras se ve. Un aviso nuevo sustituye al
+ * anterior en el acto, así que un jugador rápido nunca tiene que esperar ni
+ * cerrar nada para seguir preguntando.
+ * <p>
+ * Los avisos simples ({@link #flash}) desaparecen solos; los que llevan
+ * acciones ({@link #prompt}) se quedan hasta que se pulsa una. Solo se usa
+ * desde el hilo de eventos de Swing.
+ */
+public final class NotificationOverlay extends JPanel {
+
+    // Tiempo que se ve un aviso simple
+    private static final int SHOW_MILLIS = 1400;
+    private static final int MARGIN_TOP = 16;
+    private static final int ARC = 18;
+
+    /**
+     * Tipo de aviso; decide el color de fondo.
+     */
+    public enum Kind {
+        INFO(new Color(0x2F3B52)),
+        SUCCESS(new Color(0x1E7A3C)),
+        ERROR(new Color(0xA12A2A));
+
+        final Color background;
+
+        Kind(Color background) {
+            this.background = background;
+        }
+    }
+
+    /**
+     * Botón de un aviso con acciones.
+     *
+     * @param label Texto del botón.
+     * @param action Qué hacer al pulsarlo (el aviso ya se ha ocultado).
+     */
+    public record Action(String label, Runnable action) {
+    }
+
+    private final JLayeredPane layers;
+    private final JLabel message = new JLabel();
+    private final JPanel actions = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
+    private final Timer hideTimer = new Timer(SHOW_MILLIS, e -> dismiss());
+    private Kind kind = Kind.INFO;
+
+    private NotificationOverlay(JLayeredPane layers) {
+        this.layers = layers;
+        setOpaque(false);
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setBorder(BorderFactory.createEmptyBorder(12, 22, 12, 22));
+        message.setForeground(Color.WHITE);
+        message.setFont(new Font("Segoe UI", Font.BOLD, 18));
+        message.setHorizontalAlignment(SwingConstants.CENTER);
+        message.setAlignmentX(CENTER_ALIGNMENT);
+        actions.setOpaque(false);
+        actions.setAlignmentX(CENTER_ALIGNMENT);
+        add(message);
+        add(actions);
+        hideTimer.setRepeats(false);
+        setVisible(false);
+        layers.add(this, JLayeredPane.POPUP_LAYER);
+        layers.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                place();
+            }
+        });
+    }
+
+    /**
+     * Crea el aviso de una ventana.
+     *
+     * @param rootPane Raíz de la ventana (por ejemplo
+     * {@code frame.getRootPane()}).
+     * @return El aviso, oculto.
+     */
+    public static NotificationOverlay install(JRootPane rootPane) {
+        return new NotificationOverlay(rootPane.getLayeredPane());
+    }
+
+    /**
+     * Muestra un aviso que desaparece solo.
+     *
+     * @param text Texto del aviso.
+     * @param kind Tipo de aviso.
+     */
+    public void flash(String text, Kind kind) {
+        flash(text, kind, SHOW_MILLIS);
+    }
+
+    /**
+     * Muestra un aviso que desaparece solo pasado el tiempo indicado, para
+     * textos que se tardan más en leer.
+     *
+     * @param text Texto del aviso.
+     * @param kind Tipo de aviso.
+     * @param millis Milisegundos que se ve.
+     */
+    public void flash(String text, Kind kind, int millis) {
+        actions.removeAll();
+        open(text, kind);
+        hideTimer.setInitialDelay(millis);
+        hideTimer.restart();
+    }
+
+    /**
+     * Muestra un aviso con botones que se queda hasta que se pulsa uno.
+     *
+     * @param text Texto del aviso.
+     * @param kind Tipo de aviso.
+     * @param choices Botones, en orden.
+     */
+    public void prompt(String text, Kind kind, Action... choices) {
+        hideTimer.stop();
+        actions.removeAll();
+        for (Action choice : choices) {
+            JButton button = new JButton(choice.label());
+            button.addActionListener(e -> {
+                dismiss();
+                choice.action().run();
+            });
+            actions.add(button);
+        }
+        open(text, kind);
+        if (choices.length > 0) {
+            actions.getComponent(0).requestFocusInWindow();
+        }
+    }
+
+    private void open(String text, Kind kind) {
+        this.kind = kind;
+        message.setText(text);
+        setVisible(true);
+        place();
+        repaint();
+    }
+
+    /**
+     * Oculta el aviso actual, si hay alguno.
+     */
+    public void dismiss() {
+        hideTimer.stop();
+        if (isVisible()) {
+            setVisible(false);
+            actions.removeAll();
+        }
+    }
+
+    // Centrado arriba con su tamaño preferido
+    private void place() {
+        actions.setVisible(actions.getComponentCount() > 0);
+        int width = Math.min(getPreferredSize().width, Math.max(1, layers.getWidth() - 2 * MARGIN_TOP));
+        int height = getPreferredSize().height;
+        setBounds((layers.getWidth() - width) / 2, MARGIN_TOP, width, height);
+        revalidate();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.92f));
+        g2.setColor(kind.background);
+        g2.fillRoundRect(0, 0, getWidth(), getHeight(), ARC, ARC);
+        g2.dispose();
+    }
+}
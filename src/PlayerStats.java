@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Estadísticas por jugador (partidas, aciertos, preguntas hechas y mejor
+ * puntuación) en una tabla hash de direccionamiento abierto proyectada en
+ * memoria. Cada jugador ocupa una ranura de tamaño fijo fuera del heap,
+ * localizada por un hash de 64 bits de su nombre, así que consultar o
+ * actualizar a un jugador cuesta O(1) aunque haya millones registrados y sin
+ * cargar nada al arrancar.
+ * <p>
+ * Formato (big-endian): cabecera {@code MAGIC, VERSION, capacidad, jugadores}
+ * y {@code capacidad} ranuras de {@value #SLOT_BYTES} bytes {@code hash
+ * (long), partidas, aciertos, preguntas (long), mejor puntuación, reservado}.
+ * Un hash 0 marca una ranura libre. La tabla se duplica (en un fichero nuevo
+ * que se renombra) cuando se llena más de la mitad.
+ * <p>
+ * Varios procesos pueden compartir el fichero: las escrituras toman un bloqueo
+ * de {@link FileChannel} sobre un fichero {@code .lock} aparte. Quien duplica
+ * la tabla pone a 0 la capacidad del fichero antiguo después de sustituirlo,
+ * y los demás procesos, que aún lo tienen proyectado, lo ven y vuelven a
+ * proyectar el nuevo en lugar de seguir escribiendo en un fichero borrado.
+ */
+public final class PlayerStats {
+
+    static final int MAGIC = 0x57575053; // "WWPS"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int SLOT_BYTES = 32;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Ruta de las estadísticas de los jugadores del juego.
+     */
+    public static final Path DEFAULT_PATH = Paths.get("Scores", "players.stats");
+
+    private static PlayerStats defaultStats;
+
+    /**
+     * Estadísticas de un jugador.
+     *
+     * @param gamesPlayed Partidas terminadas.
+     * @param wins Partidas ganadas.
+     * @param questionsAsked Preguntas hechas en total.
+     * @param bestScore Mejor puntuación final.
+     */
+    public record Stats(int gamesPlayed, int wins, long questionsAsked, int bestScore) {
+
+        /**
+         * @return Porcentaje de partidas ganadas (0-100).
+         */
+        public double winRate() {
+            return gamesPlayed == 0 ? 0 : 100.0 * wins / gamesPlayed;
+        }
+
+        /**
+         * @return Media de preguntas por partida.
+         */
+        public double averageQuestions() {
+            return gamesPlayed == 0 ? 0 : (double) questionsAsked / gamesPlayed;
+        }
+    }
+
+    // Operación que se hace con el fichero de bloqueo tomado
+    @FunctionalInterface
+    private interface Locked {
+
+        void run() throws IOException;
+    }
+
+    private final Path path;
+    private final Path lockPath;
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int players;
+
+    private PlayerStats(Path path) {
+        this.path = path;
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    }
+
+    /**
+     * Abre (o crea vacío) un fichero de estadísticas.
+     *
+     * @param path Ruta del fichero.
+     * @return Las estadísticas abiertas.
+     * @throws IOException Si no se puede abrir o no tiene el formato esperado.
+     */
+    public static PlayerStats open(Path path) throws IOException {
+        PlayerStats stats = new PlayerStats(path);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        stats.locked(() -> {
+            if (!Files.exists(path)) {
+                create(path, INITIAL_CAPACITY);
+            }
+            stats.map();
+        });
+        return stats;
+    }
+
+    /**
+     * @return Las estadísticas del juego, abiertas la primera vez.
+     * @throws IOException Si no se pueden abrir.
+     */
+    public static synchronized PlayerStats getDefault() throws IOException {
+        if (defaultStats == null) {
+            defaultStats = open(DEFAULT_PATH);
+        }
+        return defaultStats;
+    }
+
+    private void map() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        capacity = table.getInt(8);
+        players = table.getInt(12);
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION
+                || Integer.bitCount(capacity) != 1 || channel.size() != HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+            throw new IOException("Formato de estadísticas no reconocido: " + path);
+        }
+    }
+
+    // Si otro proceso ha duplicado la tabla, la que está proyectada ya no es la del fichero
+    private void refresh() throws IOException {
+        if (table.getInt(8) != capacity) {
+            map();
+        }
+        players = table.getInt(12);
+    }
+
+    // Ejecuta la operación con el fichero de bloqueo bloqueado; al cerrar el canal se libera el bloqueo
+    private void locked(Locked operation) throws IOException {
+        try (FileChannel lock = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            lock.lock();
+            operation.run();
+        }
+    }
+
+    // Temporal junto al fichero; no se usa createTempFile, que lo crearía solo legible por su dueño
+    private static Path tempFor(Path path) {
+        return path.toAbsolutePath().resolveSibling(
+                path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+    }
+
+    // Crea una tabla vacía en un temporal y la coloca con un renombrado atómico
+    private static void create(Path path, int capacity) throws IOException {
+        Path temp = tempFor(path);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(0).flip());
+                // Ampliar el fichero deja el resto a ceros: todas las ranuras libres
+                out.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) capacity * SLOT_BYTES - 1);
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Hash de 64 bits del nombre (FNV-1a sobre UTF-8 con mezcla final). Nunca
+     * devuelve 0, que marca las ranuras libres.
+     *
+     * @param player Nombre del jugador.
+     * @return El identificador del jugador.
+     */
+    static long playerId(String player) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : player.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    // Posición de la ranura del jugador, o de la ranura libre donde iría
+    private int slotOf(long id) {
+        int mask = capacity - 1;
+        int slot = (int) id & mask;
+        while (true) {
+            long stored = table.getLong(offset(slot));
+            if (stored == id || stored == 0) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * @param player Nombre del jugador.
+     * @return Sus estadísticas, o {@code null} si no ha terminado ninguna
+     * partida.
+     * @throws IOException Si otro proceso ha duplicado la tabla y no se puede
+     * abrir la nueva.
+     */
+    public synchronized Stats get(String player) throws IOException {
+        if (table.getInt(8) != capacity) {
+            map();
+        }
+        int at = offset(slotOf(playerId(player)));
+        if (table.getLong(at) == 0) {
+            return null;
+        }
+        return new Stats(table.getInt(at + 8), table.getInt(at + 12), table.getLong(at + 16), table.getInt(at + 24));
+    }
+
+    public synchronized int playerCount() {
+        return players;
+    }
+
+    /**
+     * Suma una partida terminada a las estadísticas del jugador.
+     *
+     * @param player Nombre del jugador.
+     * @param won Si acertó el personaje.
+     * @param questions Preguntas que hizo.
+     * @param score Puntuación final.
+     * @throws IOException Si hay que ampliar la tabla y no se puede.
+     */
+    public synchronized void recordGame(String player, boolean won, int questions, int score) throws IOException {
+        locked(() -> {
+            refresh();
+            long id = playerId(player);
+            int slot = slotOf(id);
+            if (table.getLong(offset(slot)) == 0) {
+                if ((players + 1) * 2L > capacity) {
+                    grow();
+                    slot = slotOf(id);
+                }
+                table.putLong(offset(slot), id);
+                table.putInt(offset(slot) + 24, score);
+                table.putInt(12, ++players);
+                table.force(8, 8);
+            }
+            int at = offset(slot);
+            table.putInt(at + 8, table.getInt(at + 8) + 1);
+            table.putInt(at + 12, table.getInt(at + 12) + (won ? 1 : 0));
+            table.putLong(at + 16, table.getLong(at + 16) + questions);
+            table.putInt(at + 24, Math.max(table.getInt(at + 24), score));
+            // Solo se sincroniza con disco la ranura modificada
+            table.force(at, SLOT_BYTES);
+        });
+    }
+
+    // Duplica la capacidad reinsertando las ranuras ocupadas en un fichero nuevo
+    private void grow() throws IOException {
+        int newCapacity = capacity * 2;
+        Path temp = tempFor(path);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) newCapacity * SLOT_BYTES - 1);
+                MappedByteBuffer grown = out.map(FileChannel.MapMode.READ_WRITE, 0, out.size());
+                grown.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, newCapacity).putInt(12, players);
+                int mask = newCapacity - 1;
+                for (int slot = 0; slot < capacity; slot++) {
+                    long id = table.getLong(offset(slot));
+                    if (id == 0) {
+                        continue;
+                    }
+                    int target = (int) id & mask;
+                    while (grown.getLong(offset(target)) != 0) {
+                        target = (target + 1) & mask;
+                    }
+                    grown.put(offset(target), table, offset(slot), SLOT_BYTES);
+                }
+                grown.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        // Aviso para los procesos que siguen proyectando el fichero antiguo
+        table.putInt(8, 0);
+        map();
+    }
+}
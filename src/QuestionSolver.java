@@ -0,0 +1,217 @@
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Elige la pregunta que mejor divide a los personajes que siguen siendo
+ * posibles, es decir, la que maximiza la ganancia de información (entropía de
+ * la respuesta sí/no). Los candidatos se guardan como bitset y, por cada
+ * pregunta, se mantiene cuántos candidatos responderían "sí". Al responder una
+ * pregunta solo se recorren las palabras del bitset que aún tienen algún
+ * candidato y solo se restan los personajes eliminados, así que el trabajo
+ * por turno es proporcional a los candidatos que quedan y no al tamaño del
+ * catálogo.
+ * No es seguro para hilos: cada partida usa su propio solver.
+ */
+public final class QuestionSolver {
+
+    private final CharacterCatalog catalog;
+    // Identificadores de las características por las que se puede preguntar
+    private final int[] questions;
+    private final boolean[] asked;
+    // Para cada pregunta, cuántos candidatos vivos tienen la característica
+    private final int[] yesCounts;
+    private final long[] alive;
+    private int aliveCount;
+    // Índices (en orden) de las palabras de 'alive' que pueden no ser cero
+    private final int[] liveWords;
+    private int liveWordCount;
+
+    /**
+     * Crea un solver que solo propone las preguntas indicadas.
+     *
+     * @param catalog Catálogo de personajes.
+     * @param questions Identificadores de las características que se pueden
+     * preguntar (los valores negativos se ignoran).
+     */
+    public QuestionSolver(CharacterCatalog catalog, int[] questions) {
+        this.catalog = catalog;
+        this.questions = questions.clone();
+        this.asked = new boolean[questions.length];
+        this.yesCounts = new int[questions.length];
+        this.alive = new long[catalog.characterWords()];
+        this.liveWords = new int[alive.length];
+        reset();
+    }
+
+    /**
+     * Crea un solver con las preguntas de la botonera del juego.
+     *
+     * @param engine Motor del juego.
+     * @return Un solver para una partida.
+     */
+    public static QuestionSolver forGame(GameEngine engine) {
+        int[] ids = new int[GameEngine.QUESTIONS.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = engine.questionId(i);
+        }
+        return new QuestionSolver(engine.catalog(), ids);
+    }
+
+    /**
+     * Vuelve a considerar posibles a todos los personajes del catálogo.
+     */
+    public void reset() {
+        int size = catalog.size();
+        for (int w = 0; w < alive.length; w++) {
+            int remaining = size - (w << 6);
+            alive[w] = remaining >= 64 ? -1L : (1L << remaining) - 1;
+            liveWords[w] = w;
+        }
+        liveWordCount = alive.length;
+        aliveCount = size;
+        for (int q = 0; q < questions.length; q++) {
+            asked[q] = false;
+            yesCounts[q] = countAlive(questions[q]);
+        }
+    }
+
+    /**
+     * Registra la respuesta a una pregunta y descarta a los personajes que no
+     * encajan con ella.
+     *
+     * @param attribute Identificador de la característica preguntada (-1 si
+     * ningún personaje la tiene).
+     * @param answer Respuesta recibida.
+     */
+    public void answer(int attribute, boolean answer) {
+        for (int q = 0; q < questions.length; q++) {
+            if (questions[q] == attribute) {
+                asked[q] = true;
+            }
+        }
+        // Compacta la lista sobre la marcha quitando las palabras que se vacían
+        int kept = 0;
+        for (int i = 0; i < liveWordCount; i++) {
+            int w = liveWords[i];
+            if (alive[w] != 0) {
+                long column = attribute < 0 ? 0L : catalog.attributeWord(attribute, w);
+                long removed = alive[w] & (answer ? ~column : column);
+                if (removed != 0) {
+                    eliminate(w, removed);
+                }
+            }
+            if (alive[w] != 0) {
+                liveWords[kept++] = w;
+            }
+        }
+        liveWordCount = kept;
+    }
+
+    /**
+     * Descarta a un personaje concreto (por ejemplo, tras fallar al adivinarlo).
+     *
+     * @param character Índice del personaje.
+     */
+    public void exclude(int character) {
+        if (character < 0) {
+            return;
+        }
+        int w = character >>> 6;
+        long removed = alive[w] & (1L << character);
+        if (removed != 0) {
+            eliminate(w, removed);
+        }
+    }
+
+    // Quita los personajes 'removed' de la palabra 'w' y actualiza los contadores
+    private void eliminate(int w, long removed) {
+        alive[w] &= ~removed;
+        aliveCount -= Long.bitCount(removed);
+        for (int q = 0; q < questions.length; q++) {
+            if (questions[q] >= 0) {
+                yesCounts[q] -= Long.bitCount(removed & catalog.attributeWord(questions[q], w));
+            }
+        }
+    }
+
+    private int countAlive(int attribute) {
+        if (attribute < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < liveWordCount; i++) {
+            int w = liveWords[i];
+            count += Long.bitCount(alive[w] & catalog.attributeWord(attribute, w));
+        }
+        return count;
+    }
+
+    /**
+     * Devuelve la pregunta no hecha con mayor ganancia de información.
+     *
+     * @return El identificador de la característica o -1 si ninguna pregunta
+     * divide a los candidatos.
+     */
+    public int bestQuestion() {
+        int best = -1;
+        double bestGain = 0;
+        for (int q = 0; q < questions.length; q++) {
+            if (asked[q] || questions[q] < 0) {
+                continue;
+            }
+            double gain = entropy(yesCounts[q], aliveCount);
+            if (gain > bestGain) {
+                bestGain = gain;
+                best = questions[q];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Ganancia de información (en bits) de preguntar por una característica
+     * con los candidatos actuales.
+     *
+     * @param attribute Identificador de la característica.
+     * @return La entropía de la respuesta, entre 0 y 1.
+     */
+    public double informationGain(int attribute) {
+        for (int q = 0; q < questions.length; q++) {
+            if (questions[q] == attribute) {
+                return entropy(yesCounts[q], aliveCount);
+            }
+        }
+        return entropy(countAlive(attribute), aliveCount);
+    }
+
+    static double entropy(int yes, int total) {
+        if (yes <= 0 || yes >= total) {
+            return 0;
+        }
+        double p = (double) yes / total;
+        return -(p * Math.log(p) + (1 - p) * Math.log(1 - p)) / Math.log(2);
+    }
+
+    public int candidateCount() {
+        return aliveCount;
+    }
+
+    public boolean isCandidate(int character) {
+        return (alive[character >>> 6] & (1L << character)) != 0;
+    }
+
+    /**
+     * @return El primer personaje que sigue siendo posible o -1 si no queda
+     * ninguno.
+     */
+    public int firstCandidate() {
+        for (int i = 0; i < liveWordCount; i++) {
+            int w = liveWords[i];
+            if (alive[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(alive[w]);
+            }
+        }
+        return -1;
+    }
+}
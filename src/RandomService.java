@@ -0,0 +1,222 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Fuente de números aleatorios del juego. Cada hilo de plataforma (el de
+ * eventos de Swing, los de un pool) tiene su propio generador, obtenido al
+ * dividir ({@code split}) un generador raíz la primera vez que lo usa. Los
+ * hilos virtuales del servidor, que se crean uno por conexión y viven poco,
+ * no guardan nada por hilo: sacan sus números de una secuencia común sin
+ * cerrojos. Así miles de partidas pueden sortear a la vez sin bloquearse, y
+ * sortear no crea objetos.
+ * <p>
+ * Con {@link #reseed(long)} (o con la propiedad {@code wiw.seed} al arrancar)
+ * el generador raíz se vuelve a sembrar y todos los hilos toman uno nuevo en
+ * su siguiente sorteo. Un mismo hilo (por ejemplo, el de eventos de Swing)
+ * repite entonces exactamente la misma secuencia, lo que permite reproducir
+ * partidas. El algoritmo se elige por nombre ({@code wiw.random}, por defecto
+ * {@value #DEFAULT_ALGORITHM}) entre los generadores divisibles del JDK.
+ * <p>
+ * Para elegir personajes ({@link #draw}) se reparte de un mazo común que no
+ * llega a existir en memoria: la carta {@code n} es la posición {@code n} de
+ * una permutación del catálogo que se calcula al vuelo a partir de la
+ * semilla. Se reparten todos antes de volver a barajar y el primero de una
+ * baraja nunca es el último de la anterior, de modo que dos partidas
+ * seguidas no repiten personaje. Repartir es un incremento atómico y unas
+ * pocas multiplicaciones, sea cual sea el tamaño del catálogo.
+ */
+public final class RandomService {
+
+    static final String DEFAULT_ALGORITHM = "L64X128MixRandom";
+
+    // Incremento de SplitMix64 (parte fraccionaria de la razón áurea)
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+    // Rondas de la red de Feistel que baraja el mazo; con menos, los mazos pequeños salen sesgados
+    private static final int SHUFFLE_ROUNDS = 8;
+
+    private static final RandomService DEFAULT = new RandomService(
+            RandomGeneratorFactory.of(System.getProperty("wiw.random", DEFAULT_ALGORITHM)),
+            Long.getLong("wiw.seed"));
+
+    // Estado por hilo de plataforma: su generador, rehecho si cambia la semilla
+    private static final class Local {
+
+        int epoch = -1;
+        RandomGenerator random;
+    }
+
+    // Estado común de una semilla; se sustituye entero al resembrar
+    private static final class Shared {
+
+        final long deckSeed;
+        final long streamSeed;
+        // Cartas repartidas del mazo común
+        final AtomicLong dealt = new AtomicLong();
+        // Números sacados por los hilos virtuales
+        final AtomicLong drawn = new AtomicLong();
+
+        Shared(RandomGenerator root) {
+            deckSeed = root.nextLong();
+            streamSeed = root.nextLong();
+        }
+    }
+
+    private final RandomGeneratorFactory<? extends RandomGenerator> factory;
+    private RandomGenerator.SplittableGenerator root;
+    // Cambia en cada resiembra: los hilos comparan con la suya y se renuevan
+    private volatile int epoch;
+    private volatile Shared shared;
+    private final ThreadLocal<Local> local = ThreadLocal.withInitial(Local::new);
+
+    /**
+     * @param factory Algoritmo de generación; tiene que ser divisible.
+     * @param seed Semilla inicial, o {@code null} para una impredecible.
+     */
+    public RandomService(RandomGeneratorFactory<? extends RandomGenerator> factory, Long seed) {
+        if (!factory.isSplittable()) {
+            throw new IllegalArgumentException("El generador " + factory.name() + " no es divisible");
+        }
+        this.factory = factory;
+        root = create(seed);
+        shared = new Shared(root);
+    }
+
+    /**
+     * @return El servicio que usa el juego.
+     */
+    public static RandomService getDefault() {
+        return DEFAULT;
+    }
+
+    private RandomGenerator.SplittableGenerator create(Long seed) {
+        return (RandomGenerator.SplittableGenerator) (seed == null ? factory.create() : factory.create(seed));
+    }
+
+    /**
+     * Vuelve a sembrar el generador raíz. Cada hilo divide uno nuevo en su
+     * siguiente sorteo y el mazo común se vuelve a barajar desde el
+     * principio.
+     *
+     * @param seed Semilla.
+     */
+    public synchronized void reseed(long seed) {
+        root = create(seed);
+        shared = new Shared(root);
+        epoch++;
+    }
+
+    // Solo se entra aquí la primera vez en cada hilo o tras resembrar
+    private synchronized RandomGenerator split() {
+        return root.split();
+    }
+
+    private Local local() {
+        Local state = local.get();
+        int current = epoch;
+        if (state.epoch != current) {
+            state.epoch = current;
+            state.random = split();
+        }
+        return state;
+    }
+
+    /**
+     * @return El generador del hilo actual. No debe compartirse con otros
+     * hilos. En un hilo virtual no se guarda: cada llamada divide uno nuevo.
+     */
+    public RandomGenerator current() {
+        return Thread.currentThread().isVirtual() ? split() : local().random;
+    }
+
+    /**
+     * @param bound Límite superior (excluido).
+     * @return Un entero uniforme en {@code [0, bound)}.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Límite no válido: " + bound);
+        }
+        if (!Thread.currentThread().isVirtual()) {
+            return local().random.nextInt(bound);
+        }
+        Shared state = shared;
+        long bits = mix(state.streamSeed + state.drawn.getAndIncrement() * GAMMA);
+        // 32 bits altos por el límite: el sesgo es de bound / 2^32, despreciable aquí
+        return (int) (((bits >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Saca el siguiente personaje del mazo común.
+     *
+     * @param catalog Catálogo del que se reparte.
+     * @return El índice del personaje.
+     */
+    public int draw(CharacterCatalog catalog) {
+        Shared state = shared;
+        return card(state.deckSeed, catalog.size(), state.dealt.getAndIncrement());
+    }
+
+    /**
+     * Carta de una posición del mazo de {@code size} cartas barajado con
+     * {@code seed}. Cada {@code size} posiciones seguidas son una baraja
+     * completa, sin repetir ninguna, y la primera de una baraja no es la
+     * última de la anterior.
+     *
+     * @param seed Semilla del mazo.
+     * @param size Número de cartas.
+     * @param position Posición en el reparto, desde 0.
+     * @return La carta, en {@code [0, size)}.
+     */
+    static int card(long seed, int size, long position) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Mazo vacío");
+        }
+        if (size <= 2) {
+            // Con dos cartas no repetir es alternar
+            return size == 1 ? 0 : (int) ((mix(seed) + position) & 1);
+        }
+        long deal = position / size;
+        int index = (int) (position % size);
+        long key = mix(seed + deal * GAMMA);
+        if (deal > 0 && index < 2
+                && permute(key, size, 0) == permute(mix(seed + (deal - 1) * GAMMA), size, size - 1)) {
+            // Se cambian las dos primeras cartas de la baraja
+            index ^= 1;
+        }
+        return permute(key, size, index);
+    }
+
+    /**
+     * Permutación de {@code [0, size)} elegida por {@code key}: una red de
+     * Feistel sobre la menor potencia de 4 que cubre el mazo, repetida
+     * mientras el resultado se salga (como mucho cuatro veces de media).
+     */
+    private static int permute(long key, int size, int index) {
+        int half = Math.max(1, (33 - Integer.numberOfLeadingZeros(size - 1)) / 2);
+        int mask = (1 << half) - 1;
+        int value = index;
+        do {
+            int left = value >>> half;
+            int right = value & mask;
+            for (int round = 0; round < SHUFFLE_ROUNDS; round++) {
+                int next = left ^ (int) (mix(key + ((long) round << 32 | right)) & mask);
+                left = right;
+                right = next;
+            }
+            value = left << half | right;
+        } while (Integer.compareUnsigned(value, size) >= 0);
+        return value;
+    }
+
+    // Función de mezcla de SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,351 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Registro binario de partidas para poder repetirlas con {@link Replayer}.
+ * Cada {@link GameSession} que se graba ({@link GameSession#record}) deja un
+ * evento al empezar, en cada pregunta, en cada intento de adivinar y al
+ * terminar.
+ * <p>
+ * Formato: cabecera {@code MAGIC, VERSION} (big-endian) y eventos
+ * {@code tipo (byte), partida (varint)} seguidos de sus datos:
+ * <pre>
+ * START     inicio (long, ms), huella del catálogo (long), secreto (varint)
+ * ASK_*     ms desde el inicio (varint), característica + 1 (varint)
+ * GUESS_*   ms desde el inicio (varint), personaje + 1 (varint)
+ * END_*     ms desde el inicio (varint), puntuación (varint)
+ * ABANDONED ms desde el inicio (varint), puntuación (varint)
+ * </pre>
+ * El sufijo del tipo guarda la respuesta ({@code YES/NO}, {@code RIGHT/WRONG},
+ * {@code WON/LOST}). No hace falta guardar la semilla del sorteo: el evento
+ * {@code START} lleva directamente el personaje que salió. Una partida que se
+ * deja a medias (nueva ronda, desconexión) termina con {@code ABANDONED}; la
+ * versión 1 del formato no lo tenía.
+ * <p>
+ * Grabar no toca el disco ni espera: el evento se codifica en un búfer en
+ * memoria y un hilo aparte escribe el búfer lleno (o, como tarde,
+ * {@value #FLUSH_MILLIS} ms después del primer evento) mientras se llena el
+ * otro. Mientras no hay nada que escribir el hilo escritor duerme sin
+ * despertarse. Si el disco no da abasto y el búfer se llena antes de que el
+ * escritor lo recoja, el evento se descarta y se cuenta en {@link #dropped()}
+ * en lugar de bloquear a quien graba (que puede ser el hilo de eventos de
+ * Swing). Una partida que pierde un evento deja de grabarse hasta su final:
+ * así el reproductor nunca ve una partida con huecos, solo una sin terminar,
+ * que no cuenta como discrepancia. Cada ejecución escribe en un fichero
+ * propio, así que un proceso que muere a mitad solo puede dejar incompleto su
+ * último evento, que el reproductor ignora.
+ */
+public final class ReplayLog implements AutoCloseable {
+
+    static final int MAGIC = 0x5757524C; // "WWRL"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 8;
+
+    static final byte START = 1;
+    static final byte ASK_NO = 2;
+    static final byte ASK_YES = 3;
+    static final byte GUESS_WRONG = 4;
+    static final byte GUESS_RIGHT = 5;
+    static final byte END_LOST = 6;
+    static final byte END_WON = 7;
+    static final byte ABANDONED = 8;
+
+    // Tipo + partida + inicio + huella + secreto, el evento más largo
+    private static final int MAX_EVENT_BYTES = 1 + 10 + 8 + 8 + 5;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    static final long FLUSH_MILLIS = 200;
+
+    /**
+     * Carpeta donde se guardan las grabaciones del juego.
+     */
+    public static final Path DEFAULT_DIRECTORY = Paths.get("Replays");
+
+    private static final System.Logger LOGGER = System.getLogger(ReplayLog.class.getName());
+    private static ReplayLog defaultLog;
+
+    private final Path path;
+    private final AtomicLong nextGame = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Avisa al escritor de que hay datos nuevos, un búfer lleno, un flush o el cierre
+    private final Condition ready = lock.newCondition();
+    // Avisa a quien espera un flush de que se ha escrito otro búfer
+    private final Condition drained = lock.newCondition();
+    private ByteBuffer filling = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    // Intercambios de búfer hechos, búferes ya escritos y hasta cuál espera flush
+    private long swapped;
+    private long written;
+    private long flushTarget;
+    private boolean closed;
+    // Eventos descartados porque el búfer estaba lleno
+    private long dropped;
+    // Partidas que han perdido algún evento: no se graba nada más de ellas hasta su final
+    private final Set<Long> droppedGames = new HashSet<>();
+    private FileChannel channel;
+    private final Thread writer;
+
+    private ReplayLog(Path path) {
+        this.path = path;
+        writer = new Thread(this::drain, "replay-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Abre una grabación nueva. El fichero se crea con el primer evento.
+     *
+     * @param path Ruta del fichero; no debe existir.
+     * @return El registro abierto.
+     */
+    public static ReplayLog open(Path path) {
+        return new ReplayLog(path);
+    }
+
+    /**
+     * Devuelve la grabación de esta ejecución del juego, en
+     * {@link #DEFAULT_DIRECTORY} con la fecha y hora de arranque en el nombre.
+     * Se vacía al salir de la aplicación.
+     *
+     * @return El registro por defecto.
+     */
+    public static synchronized ReplayLog getDefault() {
+        if (defaultLog == null) {
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS"));
+            defaultLog = open(DEFAULT_DIRECTORY.resolve("games-" + stamp + ".replay"));
+            ReplayLog log = defaultLog;
+            Runtime.getRuntime().addShutdownHook(new Thread(log::close, "replay-close"));
+        }
+        return defaultLog;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return Eventos que no se grabaron porque el búfer estaba lleno.
+     */
+    public long dropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Un identificador de partida nuevo, único en este fichero.
+     */
+    long newGame() {
+        return nextGame.incrementAndGet();
+    }
+
+    void start(long game, long time, long fingerprint, int secret) {
+        lock.lock();
+        try {
+            ByteBuffer out = reserve();
+            if (out == null) {
+                if (!closed) {
+                    droppedGames.add(game);
+                }
+                return;
+            }
+            out.put(START);
+            putVarLong(out, game);
+            out.putLong(time).putLong(fingerprint);
+            putVarLong(out, secret);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Graba un evento de una partida ya empezada.
+     *
+     * @param type Tipo de evento.
+     * @param game Partida.
+     * @param elapsed Milisegundos desde el inicio de la partida.
+     * @param value Característica + 1, personaje + 1 o puntuación.
+     */
+    void event(byte type, long game, long elapsed, int value) {
+        boolean last = type >= END_LOST;
+        lock.lock();
+        try {
+            if (!droppedGames.isEmpty() && (last ? droppedGames.remove(game) : droppedGames.contains(game))) {
+                dropped++;
+                return;
+            }
+            ByteBuffer out = reserve();
+            if (out == null) {
+                if (!closed && !last) {
+                    droppedGames.add(game);
+                }
+                return;
+            }
+            out.put(type);
+            putVarLong(out, game);
+            putVarLong(out, elapsed);
+            putVarLong(out, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Devuelve el búfer en el que cabe un evento más, o null si ya se cerró o está lleno (el evento se descarta)
+    private ByteBuffer reserve() {
+        if (closed) {
+            return null;
+        }
+        if (filling.remaining() < MAX_EVENT_BYTES) {
+            dropped++;
+            ready.signal();
+            return null;
+        }
+        // El primer evento despierta al escritor, que desde ese momento cuenta FLUSH_MILLIS
+        if (filling.position() == 0 || filling.remaining() < 2 * MAX_EVENT_BYTES) {
+            ready.signal();
+        }
+        return filling;
+    }
+
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    // Hilo escritor: intercambia los búferes y escribe el lleno fuera del cerrojo
+    private void drain() {
+        while (true) {
+            ByteBuffer batch;
+            boolean last;
+            lock.lock();
+            try {
+                long wait = TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS);
+                while (!closed && filling.remaining() >= 2 * MAX_EVENT_BYTES && swapped >= flushTarget) {
+                    if (filling.position() == 0) {
+                        // Sin datos no hay nada que vigilar: se duerme hasta el primer evento
+                        ready.await();
+                        wait = TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS);
+                    } else if (wait > 0) {
+                        wait = ready.awaitNanos(wait);
+                    } else {
+                        break;
+                    }
+                }
+                last = closed;
+                batch = filling;
+                filling = writing;
+                writing = batch;
+                swapped++;
+                drained.signalAll();
+            } catch (InterruptedException ex) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            batch.flip();
+            try {
+                if (batch.hasRemaining()) {
+                    write(batch);
+                }
+            } catch (IOException ex) {
+                LOGGER.log(System.Logger.Level.WARNING, "No se pudo escribir la grabación " + path, ex);
+            }
+            batch.clear();
+            lock.lock();
+            try {
+                written++;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void write(ByteBuffer batch) throws IOException {
+        if (channel == null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+        }
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+    }
+
+    /**
+     * Espera a que todo lo grabado hasta ahora esté escrito en el fichero.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (filling.position() == 0 && swapped == written) {
+                return;
+            }
+            // Hace falta un intercambio posterior a este momento y que termine de escribirse
+            long target = swapped + 1;
+            flushTarget = Math.max(flushTarget, target);
+            while (written < target && writer.isAlive()) {
+                ready.signal();
+                drained.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el fichero. Los eventos que lleguen
+     * después se descartan.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+            if (dropped > 0) {
+                LOGGER.log(System.Logger.Level.WARNING, dropped + " eventos descartados en " + path + " por búfer lleno");
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            LOGGER.log(System.Logger.Level.WARNING, "No se pudo cerrar la grabación " + path, ex);
+        }
+    }
+}
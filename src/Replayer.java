@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Repite partidas grabadas con {@link ReplayLog} aplicando las reglas de
+ * {@link GameSession}. Cada respuesta, acierto y puntuación final grabados se
+ * comparan con los que dan las reglas actuales, así que sirve como prueba de
+ * regresión de las reglas, y el {@link GameListener} recibe cada partida
+ * terminada para sacar estadísticas.
+ * <p>
+ * El fichero se lee proyectado en memoria y las sesiones se reutilizan entre
+ * partidas, de modo que se repiten millones de eventos por segundo. Las
+ * partidas grabadas con otro catálogo (otra huella) se saltan, y las
+ * abandonadas ({@code ABANDONED}) se descartan en cuanto se leen, así que solo
+ * se guardan en memoria las partidas que de verdad siguen en juego.
+ */
+public final class Replayer {
+
+    private static final System.Logger LOGGER = System.getLogger(Replayer.class.getName());
+
+    /**
+     * Resultado de repetir un fichero.
+     *
+     * @param events Eventos leídos.
+     * @param games Partidas que han llegado al final.
+     * @param wins Partidas ganadas.
+     * @param mismatches Eventos cuyo resultado no coincide con las reglas.
+     * @param skipped Partidas saltadas por ser de otro catálogo.
+     * @param abandoned Partidas que se dejaron a medias.
+     * @param firstMismatch Descripción de la primera discrepancia, o
+     * {@code null} si no hubo ninguna.
+     */
+    public record Result(long events, long games, long wins, long mismatches, long skipped, long abandoned,
+            String firstMismatch) {
+    }
+
+    /**
+     * Recibe cada partida repetida hasta el final.
+     */
+    @FunctionalInterface
+    public interface GameListener {
+
+        /**
+         * @param game Identificador de la partida en la grabación.
+         * @param startMillis Inicio de la partida (ms desde la época).
+         * @param durationMillis Duración de la partida.
+         * @param session Sesión con el estado final; se reutiliza después de
+         * la llamada.
+         */
+        void finished(long game, long startMillis, long durationMillis, GameSession session);
+    }
+
+    private final GameEngine engine;
+
+    /**
+     * @param engine Motor con las reglas y el catálogo con que se repite.
+     */
+    public Replayer(GameEngine engine) {
+        this.engine = engine;
+    }
+
+    // Estado de una repetición en curso
+    private final class Run {
+
+        final Map<Long, GameSession> active = new HashMap<>();
+        final Map<Long, Long> startTimes = new HashMap<>();
+        final Set<Long> skippedGames = new HashSet<>();
+        final ArrayDeque<GameSession> pool = new ArrayDeque<>();
+        final GameListener listener;
+        long events;
+        long games;
+        long wins;
+        long mismatches;
+        long skipped;
+        long abandoned;
+        String firstMismatch;
+        // Casi siempre los eventos seguidos son de la misma partida
+        long lastGame = -1;
+        GameSession lastSession;
+
+        Run(GameListener listener) {
+            this.listener = listener;
+        }
+
+        GameSession session(long game) {
+            if (game != lastGame) {
+                lastGame = game;
+                lastSession = active.get(game);
+            }
+            return lastSession;
+        }
+
+        void start(long game, long time, long fingerprint, int secret) {
+            if (fingerprint != engine.catalog().fingerprint() || secret < 0 || secret >= engine.catalog().size()) {
+                skipped++;
+                skippedGames.add(game);
+                return;
+            }
+            GameSession session = pool.poll();
+            if (session == null) {
+                session = engine.newSession(secret);
+            } else {
+                session.reset(secret);
+            }
+            active.put(game, session);
+            startTimes.put(game, time);
+            lastGame = -1;
+        }
+
+        void mismatch(long game, String message) {
+            mismatches++;
+            if (firstMismatch == null) {
+                firstMismatch = "partida " + game + ": " + message;
+            }
+        }
+
+        void end(long game, GameSession session, long elapsed) {
+            games++;
+            if (session.isWon()) {
+                wins++;
+            }
+            if (listener != null) {
+                listener.finished(game, startTimes.get(game), elapsed, session);
+            }
+            finish(game, session);
+        }
+
+        void finish(long game, GameSession session) {
+            active.remove(game);
+            startTimes.remove(game);
+            pool.push(session);
+            lastGame = -1;
+        }
+
+        Result result() {
+            return new Result(events, games, wins, mismatches, skipped, abandoned, firstMismatch);
+        }
+    }
+
+    /**
+     * Repite todas las partidas de una grabación.
+     *
+     * @param file Fichero de {@link ReplayLog}.
+     * @param listener Receptor de las partidas terminadas (puede ser
+     * {@code null}).
+     * @return El resultado.
+     * @throws IOException Si no se puede leer o no es una grabación.
+     */
+    public Result replay(Path file, GameListener listener) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Grabación demasiado grande: " + file);
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.limit() < ReplayLog.HEADER_BYTES || in.getInt() != ReplayLog.MAGIC) {
+            throw new IOException("No es una grabación de partidas: " + file);
+        }
+        // La versión 1 solo se diferencia en que no tiene ABANDONED
+        int version = in.getInt();
+        if (version < 1 || version > ReplayLog.VERSION) {
+            throw new IOException("Versión de grabación no soportada (" + version + "): " + file);
+        }
+        Run run = new Run(listener);
+        try {
+            while (in.hasRemaining()) {
+                int mark = in.position();
+                if (!step(in, run)) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Evento desconocido en " + file + " en la posición " + mark);
+                    break;
+                }
+                run.events++;
+            }
+        } catch (BufferUnderflowException ex) {
+            // Último evento a medio escribir
+            LOGGER.log(System.Logger.Level.DEBUG, "Grabación incompleta: " + file);
+        }
+        return run.result();
+    }
+
+    // Aplica un evento; false si el tipo no se reconoce
+    private boolean step(ByteBuffer in, Run run) {
+        byte type = in.get();
+        long game = getVarLong(in);
+        if (type == ReplayLog.START) {
+            long time = in.getLong();
+            long fingerprint = in.getLong();
+            run.start(game, time, fingerprint, (int) getVarLong(in));
+            return true;
+        }
+        if (type < ReplayLog.ASK_NO || type > ReplayLog.ABANDONED) {
+            return false;
+        }
+        long elapsed = getVarLong(in);
+        int value = (int) getVarLong(in);
+        GameSession session = run.session(game);
+        if (session == null) {
+            // Una partida saltada se olvida con su último evento
+            boolean skipped = type >= ReplayLog.END_LOST ? run.skippedGames.remove(game) : run.skippedGames.contains(game);
+            if (!skipped) {
+                run.mismatch(game, "evento sin inicio");
+            }
+            return true;
+        }
+        if (type == ReplayLog.ABANDONED) {
+            run.abandoned++;
+            run.finish(game, session);
+            return true;
+        }
+        try {
+            switch (type) {
+                case ReplayLog.ASK_NO, ReplayLog.ASK_YES -> {
+                    if (session.ask(value - 1) != (type == ReplayLog.ASK_YES)) {
+                        run.mismatch(game, "respuesta distinta a la característica " + (value - 1));
+                    }
+                }
+                case ReplayLog.GUESS_WRONG, ReplayLog.GUESS_RIGHT -> {
+                    if (session.guess(value - 1) != (type == ReplayLog.GUESS_RIGHT)) {
+                        run.mismatch(game, "resultado distinto al adivinar " + (value - 1));
+                    }
+                }
+                default -> {
+                    if (!session.isOver() || session.isWon() != (type == ReplayLog.END_WON) || session.score() != value) {
+                        run.mismatch(game, "final distinto: grabado " + value + ", repetido " + session.score());
+                    }
+                    run.end(game, session, elapsed);
+                }
+            }
+        } catch (IllegalStateException ex) {
+            // Las reglas ya no permiten la jugada: se abandona la partida
+            run.mismatch(game, ex.getMessage());
+            run.finish(game, session);
+        }
+        return true;
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Repite grabaciones: {@code java Replayer [fichero|carpeta...]}. Sin
+     * argumentos repite las de {@link ReplayLog#DEFAULT_DIRECTORY}.
+     *
+     * @param args Ficheros o carpetas de grabaciones.
+     * @throws IOException Si no se puede leer alguna.
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args.length == 0 ? new String[]{ReplayLog.DEFAULT_DIRECTORY.toString()} : args) {
+            Path path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    listing.filter(file -> file.toString().endsWith(".replay")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        Replayer replayer = new Replayer(GameEngine.getDefault());
+        long events = 0;
+        long mismatches = 0;
+        long start = System.nanoTime();
+        for (Path file : files) {
+            Result result = replayer.replay(file, null);
+            events += result.events();
+            mismatches += result.mismatches();
+            System.out.printf("%s: %d eventos, %d partidas, %d ganadas, %d saltadas, %d abandonadas, %d discrepancias%s%n",
+                    file, result.events(), result.games(), result.wins(), result.skipped(), result.abandoned(),
+                    result.mismatches(),
+                    result.firstMismatch() == null ? "" : " (" + result.firstMismatch() + ")");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d eventos en %.2f s (%.0f eventos/s)%n", events, seconds, events / seconds);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
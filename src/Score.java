@@ -3,10 +3,8 @@
  * Click nbfs://nbhost/SystemFileSystem/Templates/GUIForms/JFrame.java to edit this template
  */
 import java.awt.Font;
-import java.io.*;
-import java.nio.file.*;
-import java.util.List;
-import javax.swing.SwingConstants;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 /**
  *
  * @author moham
@@ -15,6 +13,9 @@ public class Score extends javax.swing.JFrame {
 
     private static final java.util.logging.Logger logger = java.util.logging.Logger.getLogger(Score.class.getName());
 
+    // Modelo paginado de la clasificación (lo usa initComponents)
+    private final ScoreTableModel scoreModel = new ScoreTableModel();
+
     /**
      * Creates new form Score
      */
@@ -24,41 +25,15 @@ public class Score extends javax.swing.JFrame {
     }
 
 private void showScore() {
-    // Definimos la ruta del archivo de puntuaciones
-    Path scoreFilePath = Paths.get("Scores", "scores.txt");
-
-    // Verificamos si el archivo existe
-    if (Files.exists(scoreFilePath)) {
-        try {
-            // Leemos todas las líneas del archivo
-            List<String> lines = Files.readAllLines(scoreFilePath);
-
-            // StringBuilder para concatenar todo el contenido
-            StringBuilder contenido = new StringBuilder("<html>");
-
-            // Procesamos cada línea y la agregamos al StringBuilder
-            for (String line : lines) {
-                contenido.append(line).append("<br>"); // <br> para saltos de línea en HTML
-            }
-
-            contenido.append("</html>");
-
-            // Asignamos el contenido concatenado al JLabel
-            jLabel1.setText(contenido.toString());
-
-            // Cambiar el tamaño de la fuente
-            jLabel1.setFont(new Font("Arial", Font.PLAIN, 50));  // Aumentamos el tamaño de la fuente
-
-            // Aseguramos que el texto empiece desde arriba
-            jLabel1.setVerticalAlignment(SwingConstants.TOP);
-
-        } catch (IOException e) {
-            // En caso de error, mostramos el error en el JLabel
-            jLabel1.setText("Error al leer el archivo: " + e.getMessage());
-        }
-    } else {
-        jLabel1.setText("El archivo no existe.");
-    }
+    // La tabla solo pinta las filas visibles; el modelo las trae por páginas en segundo plano
+    jTable1.getTableHeader().setFont(new Font("Arial", Font.BOLD, 20));
+    jTable1.getColumnModel().getColumn(1).setPreferredWidth(400);
+    scoreModel.load().exceptionally(error -> {
+        // En caso de error, lo mostramos en la ventana
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                "Error al leer las puntuaciones: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+        return null;
+    });
 }
 
 
@@ -71,14 +46,18 @@ private void showScore() {
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
 
-        jLabel1 = new javax.swing.JLabel();
+        jScrollPane1 = new javax.swing.JScrollPane();
+        jTable1 = new javax.swing.JTable();
         jMenuBar2 = new javax.swing.JMenuBar();
         jMenu2 = new javax.swing.JMenu();
         jMenuItem1 = new javax.swing.JMenuItem();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
 
-        jLabel1.setText("jLabel1");
+        jTable1.setFont(new java.awt.Font("Arial", 0, 20)); // NOI18N
+        jTable1.setModel(scoreModel);
+        jTable1.setRowHeight(32);
+        jScrollPane1.setViewportView(jTable1);
 
         jMenu2.setText("File");
 
@@ -100,15 +79,15 @@ private void showScore() {
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
                 .addGap(25, 25, 25)
-                .addComponent(jLabel1, javax.swing.GroupLayout.PREFERRED_SIZE, 867, javax.swing.GroupLayout.PREFERRED_SIZE)
-                .addContainerGap(26, Short.MAX_VALUE))
+                .addComponent(jScrollPane1, javax.swing.GroupLayout.DEFAULT_SIZE, 867, Short.MAX_VALUE)
+                .addGap(26, 26, 26))
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
                 .addGap(41, 41, 41)
-                .addComponent(jLabel1, javax.swing.GroupLayout.PREFERRED_SIZE, 440, javax.swing.GroupLayout.PREFERRED_SIZE)
-                .addContainerGap(42, Short.MAX_VALUE))
+                .addComponent(jScrollPane1, javax.swing.GroupLayout.DEFAULT_SIZE, 440, Short.MAX_VALUE)
+                .addGap(42, 42, 42))
         );
 
         pack();
@@ -144,9 +123,10 @@ private void showScore() {
     }
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
-    private javax.swing.JLabel jLabel1;
     private javax.swing.JMenu jMenu2;
     private javax.swing.JMenuBar jMenuBar2;
     private javax.swing.JMenuItem jMenuItem1;
+    private javax.swing.JScrollPane jScrollPane1;
+    private javax.swing.JTable jTable1;
     // End of variables declaration//GEN-END:variables
 }
@@ -0,0 +1,422 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Diario de puntuaciones de solo añadir. Cada partida terminada añade un
+ * registro al final del fichero en O(1), sin leer ni reescribir los
+ * anteriores, así que nunca se pierde historial.
+ * <p>
+ * Formato (big-endian): cabecera {@code MAGIC, VERSION, fin confirmado (long),
+ * generación (long)} y a continuación registros {@code longitud, crc32c, instante (long),
+ * puntuación, nombre UTF-8}. Un registro solo cuenta cuando la cabecera ya
+ * apunta detrás de él, de modo que si el proceso muere a mitad de escritura el
+ * registro incompleto se ignora y se sobrescribe en el siguiente añadido. Los
+ * registros cuyo CRC no cuadra se saltan al leer y se eliminan en la siguiente
+ * compactación, que incrementa la generación.
+ * <p>
+ * Cada vez que el diario dobla su tamaño (a partir de
+ * {@value #CHECK_BYTES} bytes) se vuelven a comprobar todos los registros, no
+ * solo los nuevos, y si alguno se ha dañado se compacta. Repasar el diario
+ * entero cada vez que dobla cuesta O(1) amortizado por añadido.
+ * <p>
+ * Varios procesos pueden escribir a la vez: todas las operaciones toman un
+ * bloqueo de {@link FileChannel} sobre un fichero {@code .lock} aparte, de modo
+ * que la compactación puede sustituir el diario sin que nadie escriba en el
+ * fichero antiguo.
+ */
+public final class ScoreJournal {
+
+    static final int MAGIC = 0x5757534A; // "WWSJ"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    // longitud + crc antes de los datos del registro
+    private static final int RECORD_PREFIX = 8;
+    // instante + puntuación antes del nombre
+    private static final int PAYLOAD_FIXED = 12;
+    private static final int MAX_NAME_BYTES = 1024;
+    // Tamaño a partir del cual se repasa el diario entero cada vez que dobla
+    static final long CHECK_BYTES = 64 * 1024;
+
+    /**
+     * Ruta del diario de puntuaciones del juego.
+     */
+    public static final Path DEFAULT_PATH = Paths.get("Scores", "scores.journal");
+
+    /**
+     * Fichero de texto con el top 3 que se usaba antes del diario. Se importa
+     * una sola vez, cuando el diario todavía no existe.
+     */
+    static final Path LEGACY_PATH = Paths.get("Scores", "scores.txt");
+    private static final String LEGACY_SEPARATOR = "       ----------->";
+
+    private static final System.Logger LOGGER = System.getLogger(ScoreJournal.class.getName());
+    private static ScoreJournal defaultJournal;
+
+    /**
+     * Una puntuación registrada.
+     *
+     * @param player Nombre del jugador.
+     * @param score Puntuación final.
+     * @param time Instante en milisegundos desde la época (0 si se importó del
+     * formato antiguo).
+     */
+    public record Entry(String player, int score, long time) {
+    }
+
+    /**
+     * Hasta dónde se ha leído el diario, para continuar de forma incremental.
+     *
+     * @param generation Generación del diario cuando se leyó.
+     * @param offset Posición del siguiente registro por leer.
+     */
+    public record Position(long generation, long offset) {
+    }
+
+    /**
+     * Posición para leer el diario desde el principio.
+     */
+    public static final Position START = new Position(-1, HEADER_BYTES);
+
+    private record Header(long end, long generation) {
+    }
+
+    // Operación que se hace con el fichero de bloqueo tomado
+    @FunctionalInterface
+    private interface Locked<T> {
+
+        T run() throws IOException;
+    }
+
+    private final Path path;
+    private final Path lockPath;
+    // Se detectaron registros dañados: se compacta en la siguiente escritura
+    private boolean needsCompaction;
+
+    private ScoreJournal(Path path) {
+        this.path = path;
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    }
+
+    /**
+     * Abre (o crea vacío) un diario de puntuaciones.
+     *
+     * @param path Ruta del diario.
+     * @return El diario abierto.
+     * @throws IOException Si no se puede crear o no tiene el formato esperado.
+     */
+    public static ScoreJournal open(Path path) throws IOException {
+        ScoreJournal journal = new ScoreJournal(path);
+        journal.init(List.of());
+        return journal;
+    }
+
+    /**
+     * Crea un diario nuevo que ya contiene {@code entries}, escrito de una
+     * sola vez. Sirve para preparar diarios grandes en pruebas de rendimiento.
+     *
+     * @param path Ruta del diario; no debe existir.
+     * @param entries Puntuaciones iniciales.
+     * @return El diario creado.
+     * @throws IOException Si ya existe o no se puede escribir.
+     */
+    static ScoreJournal create(Path path, List<Entry> entries) throws IOException {
+        if (Files.exists(path)) {
+            throw new IOException("El diario ya existe: " + path);
+        }
+        ScoreJournal journal = new ScoreJournal(path);
+        journal.init(entries);
+        return journal;
+    }
+
+    /**
+     * Devuelve el diario del juego. La primera vez importa las puntuaciones
+     * del antiguo {@code scores.txt} si el diario aún no existe.
+     *
+     * @return El diario por defecto.
+     * @throws IOException Si no se puede abrir.
+     */
+    public static synchronized ScoreJournal getDefault() throws IOException {
+        if (defaultJournal == null) {
+            ScoreJournal journal = new ScoreJournal(DEFAULT_PATH);
+            journal.init(Files.exists(LEGACY_PATH) ? readLegacy(LEGACY_PATH) : List.of());
+            defaultJournal = journal;
+        }
+        return defaultJournal;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    private synchronized void init(List<Entry> initial) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        locked(false, () -> {
+            if (!Files.exists(path)) {
+                // Se crea completo en un temporal para que nunca exista un diario a medias
+                rewrite(initial, 0);
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return header(channel);
+            }
+        });
+    }
+
+    /**
+     * Añade una puntuación al final del diario y la fuerza a disco antes de
+     * volver.
+     *
+     * @param player Nombre del jugador.
+     * @param score Puntuación final.
+     * @throws IOException Si no se puede escribir.
+     */
+    public void append(String player, int score) throws IOException {
+        append(new Entry(player, score, System.currentTimeMillis()));
+    }
+
+    public synchronized void append(Entry entry) throws IOException {
+        ByteBuffer record = encode(entry);
+        locked(false, () -> {
+            if (needsCompaction) {
+                compactLocked();
+            }
+            long end = appendLocked(record);
+            if (doubled(end, end + record.capacity())) {
+                checkLocked();
+            }
+            return null;
+        });
+    }
+
+    // Añade el registro y devuelve dónde empieza (el fin confirmado anterior)
+    private long appendLocked(ByteBuffer record) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = header(channel).end();
+            // 1) el registro, 2) la cabecera que lo confirma; cada paso se fuerza a disco
+            writeFully(channel, record, end);
+            channel.force(false);
+            long newEnd = end + record.capacity();
+            writeFully(channel, ByteBuffer.allocate(Long.BYTES).putLong(0, newEnd), 8);
+            channel.force(false);
+            // Restos de una escritura interrumpida que quedaron detrás del fin confirmado
+            if (channel.size() > newEnd) {
+                channel.truncate(newEnd);
+            }
+            return end;
+        }
+    }
+
+    // Si al pasar de before a after bytes el diario ha cruzado un doble de CHECK_BYTES
+    static boolean doubled(long before, long after) {
+        return Long.highestOneBit(after / CHECK_BYTES) != Long.highestOneBit(before / CHECK_BYTES);
+    }
+
+    // Comprueba el CRC de todos los registros y compacta si alguno está dañado
+    private void checkLocked() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = header(channel);
+            scan(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, header.end() - HEADER_BYTES),
+                    HEADER_BYTES, entry -> {
+                    });
+        }
+        if (needsCompaction) {
+            compactLocked();
+        }
+    }
+
+    /**
+     * Recorre los registros confirmados a partir de una posición. Permite leer
+     * el diario de forma incremental: se guarda la posición devuelta y en la
+     * siguiente llamada solo se leen los registros nuevos.
+     *
+     * @param from Posición devuelta por una lectura anterior, o {@link #START}.
+     * @param consumer Recibe cada registro válido en orden de escritura.
+     * @return La posición hasta la que se ha leído, o {@code null} si el
+     * diario se ha compactado desde {@code from}: en ese caso no se lee nada y
+     * hay que descartar lo acumulado y volver a leer desde {@link #START}.
+     * @throws IOException Si no se puede leer.
+     */
+    public synchronized Position read(Position from, Consumer<Entry> consumer) throws IOException {
+        return locked(true, () -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                Header header = header(channel);
+                if (from != START && from.generation() != header.generation()) {
+                    return null;
+                }
+                long position = Math.max(from.offset(), HEADER_BYTES);
+                if (position < header.end()) {
+                    ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, position, header.end() - position);
+                    scan(data, position, consumer);
+                }
+                return new Position(header.generation(), Math.max(position, header.end()));
+            }
+        });
+    }
+
+    /**
+     * @return Todas las puntuaciones válidas en orden de escritura.
+     * @throws IOException Si no se puede leer.
+     */
+    public List<Entry> readAll() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        read(START, entries::add);
+        return entries;
+    }
+
+    /**
+     * Reescribe el diario con solo los registros válidos, eliminando los
+     * dañados. Nunca descarta puntuaciones válidas, pero invalida las
+     * posiciones de lecturas anteriores.
+     *
+     * @throws IOException Si no se puede reescribir.
+     */
+    public synchronized void compact() throws IOException {
+        locked(false, () -> {
+            compactLocked();
+            return null;
+        });
+    }
+
+    private void compactLocked() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Header header;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            header = header(channel);
+            scan(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, header.end() - HEADER_BYTES),
+                    HEADER_BYTES, entries::add);
+        }
+        rewrite(entries, header.generation() + 1);
+        needsCompaction = false;
+    }
+
+    // Decodifica registros consecutivos comprobando el CRC de cada uno
+    private void scan(ByteBuffer data, long base, Consumer<Entry> consumer) {
+        CRC32C crc = new CRC32C();
+        while (data.remaining() >= RECORD_PREFIX) {
+            int start = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < PAYLOAD_FIXED || length > PAYLOAD_FIXED + MAX_NAME_BYTES || length > data.remaining()) {
+                // Sin una longitud fiable no se puede saltar al siguiente registro
+                LOGGER.log(System.Logger.Level.WARNING, "Diario dañado en la posición " + (base + start));
+                needsCompaction = true;
+                data.position(data.limit());
+                return;
+            }
+            crc.reset();
+            crc.update(data.slice(data.position(), length));
+            if ((int) crc.getValue() != checksum) {
+                LOGGER.log(System.Logger.Level.WARNING, "Registro con CRC incorrecto en la posición " + (base + start));
+                needsCompaction = true;
+                data.position(data.position() + length);
+                continue;
+            }
+            long time = data.getLong();
+            int score = data.getInt();
+            byte[] name = new byte[length - PAYLOAD_FIXED];
+            data.get(name);
+            consumer.accept(new Entry(new String(name, StandardCharsets.UTF_8), score, time));
+        }
+    }
+
+    // Escribe un diario nuevo en un temporal y lo coloca con un renombrado atómico
+    private void rewrite(List<Entry> entries, long generation) throws IOException {
+        // Como CharacterCatalog.write: sin createTempFile, que lo dejaría solo legible por su dueño
+        Path temp = path.toAbsolutePath().resolveSibling(
+                path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long end = HEADER_BYTES;
+                for (Entry entry : entries) {
+                    ByteBuffer record = encode(entry);
+                    writeFully(channel, record, end);
+                    end += record.capacity();
+                }
+                writeFully(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putLong(end).putLong(generation).flip(), 0);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Ejecuta la operación con el fichero de bloqueo bloqueado; al cerrar el canal se libera el bloqueo
+    private <T> T locked(boolean shared, Locked<T> operation) throws IOException {
+        // READ además de WRITE: los bloqueos compartidos lo exigen
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            channel.lock(0, Long.MAX_VALUE, shared);
+            return operation.run();
+        }
+    }
+
+    private Header header(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // se sigue leyendo hasta completar la cabecera
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Formato de diario no reconocido: " + path);
+        }
+        long end = header.getLong(8);
+        if (end < HEADER_BYTES || end > channel.size()) {
+            throw new IOException("Cabecera del diario incoherente: " + path);
+        }
+        return new Header(end, header.getLong(16));
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        byte[] name = entry.player().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Nombre de jugador demasiado largo");
+        }
+        int length = PAYLOAD_FIXED + name.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_PREFIX + length);
+        record.position(RECORD_PREFIX);
+        record.putLong(entry.time()).putInt(entry.score()).put(name);
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(RECORD_PREFIX, length));
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        return record.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // Lee el formato antiguo: "1. nombre       ----------->puntuación"
+    private static List<Entry> readLegacy(Path legacy) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(legacy)) {
+            String[] parts = line.split(LEGACY_SEPARATOR, 2);
+            if (parts.length == 2) {
+                try {
+                    String name = parts[0].replaceAll("^\\d+\\.\\s*", "");
+                    entries.add(new Entry(name, Integer.parseInt(parts[1].trim()), 0));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return entries;
+    }
+}
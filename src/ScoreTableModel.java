@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Modelo de tabla de la pantalla de puntuaciones. No copia la clasificación:
+ * la {@code JTable} solo pide las filas visibles y el modelo las trae de
+ * {@link Leaderboard} por páginas, en un hilo de fondo. Mientras una página no
+ * ha llegado sus celdas muestran "…" y en cuanto llega se repintan. Se guardan
+ * unas pocas páginas recientes, así que la memoria no depende del número de
+ * puntuaciones.
+ * <p>
+ * Si una página no se puede cargar sus filas muestran un error y no se vuelve
+ * a pedir en cada repintado: se reintenta pasados {@value #RETRY_MILLIS} ms, y
+ * cada nuevo fallo dobla la espera hasta {@value #MAX_RETRY_MILLIS} ms.
+ */
+public class ScoreTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 100;
+    // Páginas que se conservan (las más recientes)
+    private static final int MAX_PAGES = 32;
+    private static final String LOADING = "…";
+    private static final String FAILED = "Error al cargar";
+    static final int RETRY_MILLIS = 2_000;
+    static final int MAX_RETRY_MILLIS = 60_000;
+
+    private static final String[] COLUMNS = {"Puesto", "Jugador", "Puntuación", "Partidas", "Aciertos"};
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "score-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Una fila ya resuelta, con las estadísticas del jugador si las hay
+    record Row(Leaderboard.Ranked ranked, PlayerStats.Stats stats) {
+    }
+
+    // Página que falló: no se vuelve a pedir hasta que venza la espera
+    private record Failure(int attempts, long retryAt) {
+    }
+
+    private Leaderboard leaderboard;
+    private int rowCount;
+    // Cambia en cada recarga: las páginas pedidas antes se descartan
+    private int generation;
+    // Solo se tocan desde el hilo de eventos de Swing
+    private final Map<Integer, Row[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Row[]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Map<Integer, CompletableFuture<Row[]>> pending = new LinkedHashMap<>();
+    private final Map<Integer, Failure> failed = new HashMap<>();
+
+    /**
+     * Carga la clasificación en segundo plano y, cuando está lista, fija el
+     * número de filas de la tabla.
+     *
+     * @return Un futuro que se completa cuando la tabla ya tiene filas.
+     */
+    public CompletableFuture<Void> load() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Leaderboard.getDefault();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, LOADER).thenAcceptAsync(this::show, SwingUtilities::invokeLater);
+    }
+
+    // Pasa a mostrar otra clasificación; las páginas anteriores se descartan
+    void show(Leaderboard board) {
+        leaderboard = board;
+        rowCount = board.size();
+        generation++;
+        pages.clear();
+        pending.clear();
+        failed.clear();
+        fireTableDataChanged();
+    }
+
+    // Trae una página en el hilo actual, sin esperar al de fondo
+    void preload(int page) {
+        pages.put(page, fetch(leaderboard, page));
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Row[] page = pages.get(row / PAGE_SIZE);
+        if (page == null) {
+            Failure failure = failed.get(row / PAGE_SIZE);
+            if (failure != null && System.currentTimeMillis() < failure.retryAt()) {
+                return column == 0 ? row + 1 : column == 1 ? FAILED : "";
+            }
+            request(row / PAGE_SIZE);
+            return column == 0 ? row + 1 : LOADING;
+        }
+        Row value = page[row % PAGE_SIZE];
+        if (value == null) {
+            return "";
+        }
+        PlayerStats.Stats stats = value.stats();
+        return switch (column) {
+            case 0 ->
+                value.ranked().rank();
+            case 1 ->
+                value.ranked().player();
+            case 2 ->
+                value.ranked().score();
+            case 3 ->
+                stats == null ? "" : stats.gamesPlayed();
+            default ->
+                stats == null ? "" : String.format("%.0f%%", stats.winRate());
+        };
+    }
+
+    // Pide una página al hilo de fondo si no está ya en camino
+    private void request(int page) {
+        if (pending.containsKey(page)) {
+            return;
+        }
+        Leaderboard board = leaderboard;
+        int requested = generation;
+        CompletableFuture<Row[]> future = CompletableFuture.supplyAsync(() -> fetch(board, page), LOADER);
+        pending.put(page, future);
+        future.whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+            pending.remove(page, future);
+            // Si se recargó la clasificación entretanto la página ya no vale
+            if (requested != generation) {
+                return;
+            }
+            if (rows != null) {
+                failed.remove(page);
+                pages.put(page, rows);
+            } else {
+                System.getLogger(ScoreTableModel.class.getName()).log(System.Logger.Level.WARNING,
+                        "No se pudo cargar la página " + page, error);
+                failed(page);
+            }
+            pageUpdated(page);
+        }));
+    }
+
+    // Recuerda el fallo y vuelve a pintar la página cuando toque reintentar
+    private void failed(int page) {
+        Failure previous = failed.get(page);
+        int attempts = previous == null ? 0 : previous.attempts() + 1;
+        int delay = (int) Math.min(MAX_RETRY_MILLIS, (long) RETRY_MILLIS << Math.min(attempts, 16));
+        failed.put(page, new Failure(attempts, System.currentTimeMillis() + delay));
+        int requested = generation;
+        Timer retry = new Timer(delay, e -> {
+            if (requested == generation) {
+                pageUpdated(page);
+            }
+        });
+        retry.setRepeats(false);
+        retry.start();
+    }
+
+    private void pageUpdated(int page) {
+        int first = page * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    static Row[] fetch(Leaderboard board, int page) {
+        List<Leaderboard.Ranked> ranked = board.page(page * PAGE_SIZE, PAGE_SIZE);
+        PlayerStats stats;
+        try {
+            stats = PlayerStats.getDefault();
+        } catch (IOException ex) {
+            stats = null;
+        }
+        Row[] rows = new Row[PAGE_SIZE];
+        for (int i = 0; i < ranked.size(); i++) {
+            Leaderboard.Ranked entry = ranked.get(i);
+            PlayerStats.Stats player = null;
+            if (stats != null) {
+                try {
+                    player = stats.get(entry.player());
+                } catch (IOException ex) {
+                    // Sin estadísticas la clasificación se sigue mostrando
+                    stats = null;
+                }
+            }
+            rows[i] = new Row(entry, player);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,114 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ *
+ * @author Mohamed El Hagib Bouanane
+ */
+/**
+ * Atlas de retratos generado en la compilación por {@link AtlasBuilder}. Todos
+ * los retratos están ya escalados dentro de una única imagen, así que basta con
+ * decodificar un fichero y recortar subimágenes (que comparten los píxeles del
+ * atlas) en lugar de decodificar cada JPEG por separado. Las líneas del índice
+ * que no se entienden o que se salen de la imagen se ignoran, y esos retratos
+ * se cargan de su fichero como si no estuvieran en el atlas.
+ */
+public final class SpriteAtlas {
+
+    static final String IMAGE_RESOURCE = "/img/atlas.png";
+    static final String INDEX_RESOURCE = "/img/atlas.idx";
+
+    private static final System.Logger LOGGER = System.getLogger(SpriteAtlas.class.getName());
+    private static SpriteAtlas defaultAtlas;
+    private static boolean defaultLoaded;
+
+    private final BufferedImage sheet;
+    private final Map<String, Rectangle> cells;
+
+    private SpriteAtlas(BufferedImage sheet, Map<String, Rectangle> cells) {
+        this.sheet = sheet;
+        this.cells = cells;
+    }
+
+    /**
+     * Carga el atlas incluido en el classpath la primera vez que se pide.
+     *
+     * @return El atlas o {@code null} si no se ha generado (por ejemplo al
+     * ejecutar sin pasar por ant).
+     */
+    public static synchronized SpriteAtlas getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            try {
+                defaultAtlas = load();
+            } catch (IOException ex) {
+                LOGGER.log(System.Logger.Level.WARNING, "No se pudo leer el atlas de retratos", ex);
+            }
+        }
+        return defaultAtlas;
+    }
+
+    private static SpriteAtlas load() throws IOException {
+        Map<String, Rectangle> cells = new HashMap<>();
+        try (InputStream index = SpriteAtlas.class.getResourceAsStream(INDEX_RESOURCE)) {
+            if (index == null) {
+                return null;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // recurso x y ancho alto
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 5) {
+                    try {
+                        cells.put(parts[0], new Rectangle(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                                Integer.parseInt(parts[3]), Integer.parseInt(parts[4])));
+                    } catch (NumberFormatException ex) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Línea no válida en el índice del atlas: " + line);
+                    }
+                }
+            }
+        }
+        try (InputStream image = SpriteAtlas.class.getResourceAsStream(IMAGE_RESOURCE)) {
+            if (image == null) {
+                return null;
+            }
+            BufferedImage sheet = ImageIO.read(image);
+            if (sheet == null) {
+                throw new IOException("Formato de atlas no soportado");
+            }
+            // Un índice desfasado respecto a la imagen haría fallar getSubimage al pintar
+            Rectangle bounds = new Rectangle(sheet.getWidth(), sheet.getHeight());
+            cells.values().removeIf(cell -> cell.isEmpty() || !bounds.contains(cell));
+            return new SpriteAtlas(sheet, cells);
+        }
+    }
+
+    /**
+     * Devuelve el retrato pre-escalado de un recurso. La subimagen comparte
+     * los píxeles del atlas, no se copia nada.
+     *
+     * @param resource Ruta original del retrato (por ejemplo
+     * "/img/kratos.jpeg").
+     * @return La subimagen o {@code null} si el recurso no está en el atlas.
+     */
+    public BufferedImage sprite(String resource) {
+        Rectangle cell = cells.get(resource);
+        if (cell == null) {
+            return null;
+        }
+        return sheet.getSubimage(cell.x, cell.y, cell.width, cell.height);
+    }
+
+    public boolean contains(String resource) {
+        return cells.containsKey(resource);
+    }
+}